@@ -0,0 +1,49 @@
+package hh.sof03.mybudgetpal.config;
+
+import org.bson.BsonType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.result.UpdateResult;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+@Configuration
+public class EntryAmountMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(EntryAmountMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Convert the amounts of entries saved before amounts were stored as
+     * decimals from strings to decimals, so the aggregations can sum them
+     * as they are. The conversion runs in the database with one update, and
+     * once every amount is a decimal it changes nothing.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void convertStringAmounts() {
+        try {
+            UpdateResult result = mongoTemplate.updateMulti(
+                new Query(Criteria.where("amount").type(BsonType.STRING.getValue())),
+                AggregationUpdate.update().set("amount").toValueOf(ConvertOperators.valueOf("amount").convertToDecimal()),
+                // By collection name, so the type number is not converted to the decimal type of the amount
+                mongoTemplate.getCollectionName(Entry.class));
+            if (result.getModifiedCount() > 0) {
+                log.info("Converted the amounts of {} entries from strings to decimals", result.getModifiedCount());
+            }
+        } catch (Exception e) {
+            log.error("Could not convert the string amounts of the entries", e);
+        }
+    }
+}
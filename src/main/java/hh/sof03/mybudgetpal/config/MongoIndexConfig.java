@@ -0,0 +1,53 @@
+package hh.sof03.mybudgetpal.config;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.ImportLog;
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    // Documents whose annotated indexes the import and statistics code depends on
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Entry.class, ImportLog.class, MonthlyRollup.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    /**
+     * Create the indexes declared on the documents if they do not exist yet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOperations = mongoTemplate.indexOps(document);
+            for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                try {
+                    indexOperations.ensureIndex(index);
+                } catch (Exception e) {
+                    log.error("Could not create index {} for {}", index.getIndexKeys(), document.getSimpleName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package hh.sof03.mybudgetpal.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+
+@Configuration
+public class MultipartConfig {
+
+  /**
+   * Resolve multipart requests only when a controller asks for the parts.
+   * The streaming import reads the request body itself, so it must not be
+   * parsed before the controller is called.
+   *
+   * @return MultipartResolver
+   */
+  @Bean
+  public MultipartResolver multipartResolver() {
+    StandardServletMultipartResolver resolver = new StandardServletMultipartResolver();
+    resolver.setResolveLazily(true);
+    return resolver;
+  }
+
+}
@@ -0,0 +1,94 @@
+package hh.sof03.mybudgetpal.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import hh.sof03.mybudgetpal.domain.User;
+import hh.sof03.mybudgetpal.payload.response.MessageResponse;
+import hh.sof03.mybudgetpal.security.services.UserService;
+import hh.sof03.mybudgetpal.services.DropDirectoryIngestionService;
+import hh.sof03.mybudgetpal.services.IngestionRun;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private DropDirectoryIngestionService ingestionService;
+
+  /**
+   * Start importing the statement files of the ingestion directory
+   *
+   * @param force if true, files the users have already imported are imported again
+   * @param request includes the user's token
+   * @return IngestionRun with the progress of the scan
+   */
+  @PostMapping("/ingest")
+  public ResponseEntity<?> startIngestion(@RequestParam(defaultValue = "false") boolean force,
+      HttpServletRequest request) {
+    ResponseEntity<MessageResponse> error = checkAdmin(request);
+    if (error != null) {
+      return error;
+    }
+
+    if (!ingestionService.isConfigured()) {
+      return ResponseEntity.badRequest()
+          .body(new MessageResponse("Ingestion directory is not configured", "error"));
+    }
+
+    IngestionRun run = ingestionService.start(force);
+    if (run == null) {
+      return ResponseEntity.status(409).body(new MessageResponse("Ingestion is already running", "error"));
+    }
+
+    return ResponseEntity.accepted().body(run);
+  }
+
+  /**
+   * Get the progress and throughput of the latest ingestion
+   *
+   * @param request includes the user's token
+   * @return IngestionRun
+   */
+  @GetMapping("/ingest")
+  public ResponseEntity<?> getIngestion(HttpServletRequest request) {
+    ResponseEntity<MessageResponse> error = checkAdmin(request);
+    if (error != null) {
+      return error;
+    }
+
+    IngestionRun run = ingestionService.getLastRun();
+    if (run == null) {
+      return ResponseEntity.status(404).body(new MessageResponse("No ingestion has been started", "error"));
+    }
+
+    return ResponseEntity.ok(run);
+  }
+
+  /**
+   * Check that the request comes from an admin
+   *
+   * @param request
+   * @return error response, or null if the user is an admin
+   */
+  private ResponseEntity<MessageResponse> checkAdmin(HttpServletRequest request) {
+    User user = userService.getUserFromRequest(request);
+    if (user == null) {
+      return ResponseEntity.badRequest().body(new MessageResponse("User not found or invalid token", "error"));
+    }
+
+    if (!user.getRoles().contains("ROLE_ADMIN")) {
+      return ResponseEntity.status(403).body(new MessageResponse("You do not have permission to do this", "error"));
+    }
+
+    return null;
+  }
+
+}
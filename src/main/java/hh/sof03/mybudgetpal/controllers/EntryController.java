@@ -1,32 +1,49 @@
 package hh.sof03.mybudgetpal.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.Scanner;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
 
 import hh.sof03.mybudgetpal.domain.User;
 import hh.sof03.mybudgetpal.payload.response.MessageResponse;
 import hh.sof03.mybudgetpal.security.services.UserService;
-import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryListItem;
 import hh.sof03.mybudgetpal.domain.EntryRepository;
-import hh.sof03.mybudgetpal.domain.Keyword;
-import hh.sof03.mybudgetpal.domain.KeywordRepository;
-import hh.sof03.mybudgetpal.domain.KeywordType;
+import hh.sof03.mybudgetpal.domain.ImportLog;
+import hh.sof03.mybudgetpal.services.EntryDeletionService;
+import hh.sof03.mybudgetpal.services.EntryExportService;
+import hh.sof03.mybudgetpal.services.EntryListingService;
+import hh.sof03.mybudgetpal.services.EntryPage;
+import hh.sof03.mybudgetpal.services.FileImportStatus;
+import hh.sof03.mybudgetpal.services.ImportJob;
+import hh.sof03.mybudgetpal.services.ImportJobService;
+import hh.sof03.mybudgetpal.services.ImportLimitException;
+import hh.sof03.mybudgetpal.services.ImportLogService;
+import hh.sof03.mybudgetpal.services.MultiFileImportService;
+import hh.sof03.mybudgetpal.services.StatementSource;
+import hh.sof03.mybudgetpal.services.StreamingImportService;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -37,6 +54,15 @@ public class EntryController {
 
   private static final Logger log = LoggerFactory.getLogger(EntryController.class);
 
+  // Limits used for an open end of a date range
+  private static final LocalDate EARLIEST_DATE = LocalDate.of(1900, 1, 1);
+
+  private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
+  private static final int DEFAULT_PAGE_SIZE = 50;
+
+  private static final int EXPORT_GZIP_BUFFER_SIZE = 8192;
+
   @Autowired
   private EntryRepository entryRepository;
 
@@ -44,30 +70,125 @@ public class EntryController {
   private UserService userService;
 
   @Autowired
-  private KeywordRepository keywordRepository;
+  private MultiFileImportService multiFileImportService;
+
+  @Autowired
+  private ImportJobService importJobService;
+
+  @Autowired
+  private StreamingImportService streamingImportService;
+
+  @Autowired
+  private ImportLogService importLogService;
+
+  @Autowired
+  private EntryListingService entryListingService;
+
+  @Autowired
+  private EntryExportService entryExportService;
+
+  @Autowired
+  private EntryDeletionService entryDeletionService;
 
   /**
-   * Get all entries for the user
+   * Get the entries for the user, optionally only the ones between two dates.
+   * Without limit, cursor and fields all entries are returned as an array.
+   * With any of them, a page of entries is returned newest first, with the
+   * cursor of the next page.
    * 
+   * @param from first date included (yyyy-MM-dd), optional
+   * @param to last date included (yyyy-MM-dd), optional
+   * @param limit entries per page, 50 by default
+   * @param cursor nextCursor of the previous page, optional
+   * @param fields comma separated fields of the entries to return, optional
    * @param request
-   * @return List of entries
+   * @return List of entries without the user id, or a page of entries
    */
   @GetMapping("/entries")
-  public ResponseEntity<List<Entry>> getEntries(HttpServletRequest request) throws IOException {
+  public ResponseEntity<?> getEntries(
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String fields,
+      HttpServletRequest request) throws IOException {
     try {
 
       User user = userService.getUserFromRequest(request);
       if (user == null) {
         return ResponseEntity.badRequest().body(null);
       }
+      if (from != null && to != null && from.isAfter(to)) {
+        return ResponseEntity.badRequest().body(null);
+      }
+
+      if (limit != null || cursor != null || fields != null) {
+        try {
+          EntryPage page = entryListingService.getPage(user.getId(), from, to,
+              limit == null ? DEFAULT_PAGE_SIZE : limit, cursor, fields);
+          return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+          return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage(), "error"));
+        }
+      }
 
-      List<Entry> entries = entryRepository.findAllByUserId(user.getId());
+      List<EntryListItem> entries = from == null && to == null ? entryRepository.findListItemsByUserId(user.getId())
+          : entryRepository.findListItemsByUserIdAndDateRange(user.getId(), from == null ? EARLIEST_DATE : from,
+              to == null ? LATEST_DATE : to);
       return ResponseEntity.ok(entries);
     } catch (Exception e) {
       return ResponseEntity.badRequest().body(null);
     }
   }
 
+  /**
+   * Export the entries of the user, oldest first, optionally only the ones
+   * between two dates. The file is written to the response while the
+   * entries are read, so it is never held in memory.
+   * 
+   * @param format ndjson or csv, ndjson by default
+   * @param from first date included (yyyy-MM-dd), optional
+   * @param to last date included (yyyy-MM-dd), optional
+   * @param gzip if true, the response is gzip encoded
+   * @param request
+   * @return the entries as a file attachment
+   */
+  @GetMapping("/entries/export")
+  public ResponseEntity<StreamingResponseBody> exportEntries(
+      @RequestParam(defaultValue = "ndjson") String format,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(defaultValue = "false") boolean gzip,
+      HttpServletRequest request) {
+    User user = userService.getUserFromRequest(request);
+    if (user == null) {
+      return ResponseEntity.status(401).body(null);
+    }
+    EntryExportService.Format exportFormat = EntryExportService.Format.fromString(format);
+    if (exportFormat == null || (from != null && to != null && from.isAfter(to))) {
+      return ResponseEntity.badRequest().body(null);
+    }
+
+    String userId = user.getId();
+    StreamingResponseBody body = out -> {
+      OutputStream target = gzip ? new GZIPOutputStream(out, EXPORT_GZIP_BUFFER_SIZE) : out;
+      long entries = entryExportService.export(userId, from, to, exportFormat, target);
+      if (target instanceof GZIPOutputStream gzipStream) {
+        gzipStream.finish();
+      }
+      log.info("Exported {} entries of user {} as {}", entries, userId, exportFormat);
+    };
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename("entries." + exportFormat.getExtension()).build().toString());
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.body(body);
+  }
+
   /**
    * Add a new entry for the user
    * 
@@ -84,7 +205,13 @@ public class EntryController {
         return ResponseEntity.badRequest().body(new MessageResponse("User not found or invalid token", "error"));
       }
 
-      entryRepository.deleteById(id);
+      // Entries of other users are not found, so their ids are not revealed either
+      if (entryDeletionService.delete(user.getId(), id) == null) {
+        return ResponseEntity.badRequest().body(new MessageResponse("Entry not found", "error"));
+      }
+
+      // Importing a file with the deleted entry again brings it back
+      importLogService.forget(user.getId());
       return ResponseEntity.ok().body(new MessageResponse("Entry deleted successfully", "success"));
     } catch (Exception e) {
       return ResponseEntity.badRequest().body(new MessageResponse("Entry not found", "error"));
@@ -92,14 +219,20 @@ public class EntryController {
   }
 
   /**
-   * Add a new entry for the user
+   * Import statement files for the user
    *
-   * @param entry
+   * @param files
+   * @param async if true, the files are imported in the background and the
+   *              id of the import job is returned
+   * @param force if true, files the user has already imported are imported
+   *              again, so rows that are not in the database are inserted
    * @param request includes the user's token
-   * @return MessageResponse with success or error message
+   * @return uploaded, already imported and failed files, or the import job id
    */
   @PostMapping("/entries/import-data")
-  public ResponseEntity<?> importFiles(@RequestParam("file") MultipartFile[] files, HttpServletRequest request) {
+  public ResponseEntity<?> importFiles(@RequestParam("file") MultipartFile[] files,
+      @RequestParam(value = "async", defaultValue = "false") boolean async,
+      @RequestParam(value = "force", defaultValue = "false") boolean force, HttpServletRequest request) {
     try {
 
       User user = userService.getUserFromRequest(request);
@@ -126,28 +259,24 @@ public class EntryController {
             .body(new MessageResponse("Only CSV file allowed. Please try importing again.", "error"));
       }
 
-      List<String> uploadedFiles = new ArrayList<>();
-      List<String> failedFiles = new ArrayList<>();
-
-      for (MultipartFile file : files) {
+      if (async) {
         try {
-          boolean isStatementFile = processStatementFile(file, user);
-          if (isStatementFile) {
-            uploadedFiles.add(file.getOriginalFilename());
-          } else {
-            failedFiles.add(file.getOriginalFilename());
-          }
-        } catch (Exception e) {
-          failedFiles.add(file.getOriginalFilename());
-          e.printStackTrace();
+          ImportJob job = importJobService.submit(files, user, force);
+          Map<String, String> result = new HashMap<>();
+          result.put("jobId", job.getId());
+          return ResponseEntity.accepted().body(result);
+        } catch (TaskRejectedException e) {
+          return ResponseEntity.status(503)
+              .body(new MessageResponse("Too many imports in progress. Please try again later.", "error"));
         }
       }
 
-      Map<String, List<String>> result = new HashMap<>();
-      result.put("uploadedFiles", uploadedFiles);
-      result.put("failedFiles", failedFiles);
+      List<StatementSource> sources = new ArrayList<>();
+      for (MultipartFile file : files) {
+        sources.add(StatementSource.of(file));
+      }
 
-      return ResponseEntity.ok().body(result);
+      return ResponseEntity.ok().body(importResult(multiFileImportService.importFiles(sources, user, force)));
 
     } catch (Exception e) {
       return ResponseEntity.badRequest().body(new MessageResponse("Error importing files", "error"));
@@ -155,217 +284,114 @@ public class EntryController {
   }
 
   /**
-   * Process the statement file and save the entries to the database
+   * Import statement files while they are being uploaded. The files are
+   * parsed straight from the request body instead of being buffered first.
    *
-   * @param file
-   * @param user
-   * @return true if the file was processed successfully, false otherwise
+   * @param request multipart request with the files, includes the user's token
+   * @return uploaded, already imported and failed files
    */
-  private boolean processStatementFile(MultipartFile file, User user) throws IOException {
-    String bankName = determineBankName(file, user);
-    log.info("Bank name is this: " + bankName);
-    if (bankName.isEmpty()) {
-      return false;
-    }
-
-    if (file.isEmpty()) {
-      return false;
-    }
+  @PostMapping("/entries/import-stream")
+  public ResponseEntity<?> importFilesStreaming(HttpServletRequest request) {
+    try {
 
-    // Fetch excluded keywords for the user
-    List<Keyword> excludedKeywords = keywordRepository.findAllByUserIdAndType(user.getId(), KeywordType.EXCLUDED);
-
-    try (Scanner scanner = new Scanner(file.getInputStream())) {
-      String[] headers = scanner.nextLine().split(";");
-      Map<String, Integer> columnIndex = mapColumnIndexes(headers, bankName);
-      log.info("Column indexes: " + columnIndex);
-      while (scanner.hasNext()) {
-        String line = scanner.nextLine();
-        String[] columns = line.split(";");
-        String date = columns[columnIndex.get("date")].replace(".",
-            "-").replace("\"", "");
-        LocalDate formattedDate = parseDate(date, bankName);
-        BigDecimal amount = new BigDecimal(columns[columnIndex.get("amount")].replace(",", "."));
-        String title = columns[columnIndex.get("title")].toLowerCase().replace("\"",
-            "");
-        String referenceId = columns[columnIndex.get("referenceId")].replace("\"",
-            "");
-        bankName = bankName.toLowerCase();
-
-        title = title.replaceAll("\\s{2,}", " ");
-
-        if (entryRepository.findByReferenceIdAndBankName(referenceId, bankName) != null) {
-          continue;
-        }
+      User user = userService.getUserFromRequest(request);
+      if (user == null) {
+        return ResponseEntity.badRequest().body(new MessageResponse("User not found or invalid token", "error"));
+      }
 
-        if (containsExcludedKeyword(title, excludedKeywords)) {
-          continue;
-        }
+      if (!JakartaServletFileUpload.isMultipartContent(request)) {
+        return ResponseEntity.badRequest()
+            .body(new MessageResponse("Please select at least one file to upload.", "error"));
+      }
 
-        Entry newEntry = new Entry(formattedDate, amount, title, bankName, referenceId, user.getId());
-                entryRepository.save(newEntry);
+      List<FileImportStatus> statuses = streamingImportService.importMultipart(request, user);
+      if (statuses.isEmpty()) {
+        return ResponseEntity.badRequest()
+            .body(new MessageResponse("Please select at least one file to upload.", "error"));
       }
 
-      return true;
-    } catch (IOException e) {
-      e.printStackTrace();
-      return false;
-    }
-  }
+      return ResponseEntity.ok().body(importResult(statuses));
 
-  /**
-   * Parse the date based on the bank name
-   *
-   * @param date
-   * @param bankName
-   * @return LocalDate object
-   */
-  private LocalDate parseDate(String date, String bankName) {
-    switch (bankName) {
-      case "s-pankki":
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern("dd-MM-yyyy"));
-      case "op-pankki":
-        return LocalDate.parse(date, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-      default:
-        break;
+    } catch (FileUploadSizeException e) {
+      return ResponseEntity.status(413).body(new MessageResponse("Upload is too large", "error"));
+    } catch (ImportLimitException e) {
+      return ResponseEntity.status(413).body(new MessageResponse(e.getMessage(), "error"));
+    } catch (Exception e) {
+      log.error("Streaming import failed", e);
+      return ResponseEntity.badRequest().body(new MessageResponse("Error importing files", "error"));
     }
-    return LocalDate.parse(date, DateTimeFormatter.ofPattern("dd-MM-yyyy"));
   }
 
   /**
-   * Determine the bank name based on the file content
+   * Get the statement files the user has imported, newest first
    *
-   * @param file
-   * @param user
-   * @return bank name
+   * @param request includes the user's token
+   * @return List of imported files
    */
-  private String determineBankName(MultipartFile file, User user) {
-    String bankName = "";
-    String filename = file.getOriginalFilename();
-    bankName = getBankNameFromFileName(filename);
-
-    if (bankName.isEmpty()) {
-      try (Scanner scanner = new Scanner(file.getInputStream())) {
-        String[] headers = scanner.nextLine().split(";");
-        Map<String, Integer> columnIndex = mapColumnIndexes(headers, bankName);
-
-        while (scanner.hasNext()) {
-          String line = scanner.nextLine();
-          String[] columns = line.split(";");
-
-          String title = columns[columnIndex.get("title")].toLowerCase().replace("\"",
-              "");
-          BigDecimal amount = new BigDecimal(columns[columnIndex.get("amount")].replace(",", "."));
-
-          if ((title.contains(user.getFirstName().toLowerCase() + " " +
-              user.getLastName().toLowerCase())
-              || title.contains(user.getLastName().toLowerCase() + " " +
-                  user.getFirstName().toLowerCase()))
-              && amount.compareTo(BigDecimal.ZERO) >= 0) {
-            log.info("Bank name found from BIC" + title);
-            log.info("line" + line);
-            bankName = BicToBankName(columns[columnIndex.get("bic")]);
-            log.info("Bank name found from BIC is :" + bankName);
-            if (!bankName.isEmpty()) {
-              return bankName;
-            }
-          }
-        }
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+  @GetMapping("/entries/import-history")
+  public ResponseEntity<List<ImportLog>> getImportHistory(HttpServletRequest request) {
+    User user = userService.getUserFromRequest(request);
+    if (user == null) {
+      return ResponseEntity.badRequest().body(null);
     }
 
-    return bankName;
+    return ResponseEntity.ok(importLogService.getHistory(user.getId()));
   }
 
   /**
-   * Map the column indexes based on the headers
+   * Get the progress of a background import job
    *
-   * @param headers
-   * @param bankName
-   * @return Map of column indexes
+   * @param id
+   * @param request includes the user's token
+   * @return ImportJob with the progress of each file
    */
-  private Map<String, Integer> mapColumnIndexes(String[] headers, String bankName) {
-    Map<String, Integer> columnIndex = new HashMap<>();
-
-    for (int i = 0; i < headers.length; i++) {
-      String header = headers[i].trim().toLowerCase();
-      if (header.contains("kirjauspäivä") || header.contains("päivämäärä")) {
-        columnIndex.put("date", i);
-      } else if (header.contains("summa") || header.contains("määrä")) {
-        columnIndex.put("amount", i);
-      } else if (header.contains("saaja/maksaja") || header.equals("saajan nimi")) {
-        columnIndex.put("title", i);
-      } else if (header.contains("arkistointitunnus")) {
-        columnIndex.put("referenceId", i);
-      } else if (header.contains("bic")) {
-        log.info("BIC found at index: " + i);
-        columnIndex.put("bic", i);
-      }
+  @GetMapping("/entries/import-jobs/{id}")
+  public ResponseEntity<?> getImportJob(@PathVariable String id, HttpServletRequest request) {
+    User user = userService.getUserFromRequest(request);
+    if (user == null) {
+      return ResponseEntity.badRequest().body(new MessageResponse("User not found or invalid token", "error"));
     }
 
-    return columnIndex;
-  }
-
-  /**
-   * Convert BIC code to bank name
-   *
-   * @param bic
-   * @return bank name
-   */
-  private String BicToBankName(String bic) {
-    switch (bic.toLowerCase()) {
-      case "sbanfihh":
-        return "s-pankki";
-      case "okoyfihh":
-        return "op-pankki";
-      default:
-        break;
+    ImportJob job = importJobService.getJob(id, user);
+    if (job == null) {
+      return ResponseEntity.status(404).body(new MessageResponse("Import job not found", "error"));
     }
-    return "";
-  }
 
-  /**
-   * Get the bank name from the file name
-   *
-   * @param filename
-   * @return bank name
-   */
-  private String getBankNameFromFileName(String filename) {
-    if (filename.toLowerCase().contains("spankki") ||
-        filename.toLowerCase().contains("s-pankki")) {
-      return "s-pankki";
-    } else if (filename.toLowerCase().contains("oppankki") ||
-        filename.toLowerCase().contains("op")) {
-      return "op-pankki";
-    }
-    return "";
+    return ResponseEntity.ok(job);
   }
 
   /**
-   * Check if the title contains any excluded keywords
+   * Group the imported files by their result
    *
-   * @param title
-   * @param excludedKeywords
-   * @return true if the title contains excluded keywords, false otherwise
+   * @param statuses
+   * @return uploaded, already imported and failed file names, and the failed
+   *         files whose rows were partly imported before they failed
    */
-  public boolean containsExcludedKeyword(String title, List<Keyword> excludedKeywords) {
-    if (title == null || excludedKeywords == null) {
-      return false;
-    }
-
-    String lowerCaseTitle = title.toLowerCase();
-
-    for (Keyword keyword : excludedKeywords) {
-      String lowerCaseKeyword = keyword.getKeywords().get(0).toLowerCase();
-
-      if (lowerCaseTitle.contains(lowerCaseKeyword)) {
-        return true;
+  private Map<String, List<String>> importResult(List<FileImportStatus> statuses) {
+    List<String> uploadedFiles = new ArrayList<>();
+    List<String> alreadyImportedFiles = new ArrayList<>();
+    List<String> failedFiles = new ArrayList<>();
+    List<String> partiallyImportedFiles = new ArrayList<>();
+
+    for (FileImportStatus status : statuses) {
+      if (status.getStatus() == FileImportStatus.Status.COMPLETED) {
+        uploadedFiles.add(status.getFileName());
+      } else if (status.getStatus() == FileImportStatus.Status.ALREADY_IMPORTED) {
+        alreadyImportedFiles.add(status.getFileName());
+      } else {
+        failedFiles.add(status.getFileName());
+        if (status.getInserted() > 0) {
+          partiallyImportedFiles.add(status.getFileName());
+        }
       }
     }
 
-    return false;
+    Map<String, List<String>> result = new HashMap<>();
+    result.put("uploadedFiles", uploadedFiles);
+    result.put("alreadyImportedFiles", alreadyImportedFiles);
+    result.put("failedFiles", failedFiles);
+    result.put("partiallyImportedFiles", partiallyImportedFiles);
+    return result;
   }
 
 }
@@ -1,26 +1,39 @@
 
 package hh.sof03.mybudgetpal.controllers;
 
+import java.time.LocalDate;
+import java.time.Month;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import hh.sof03.mybudgetpal.domain.Entry;
-import hh.sof03.mybudgetpal.domain.EntryRepository;
-import hh.sof03.mybudgetpal.domain.KeywordRepository;
-import hh.sof03.mybudgetpal.domain.Keyword;
-import hh.sof03.mybudgetpal.domain.KeywordType;
+import hh.sof03.mybudgetpal.domain.MerchantCount;
+import hh.sof03.mybudgetpal.domain.MerchantSketch;
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
 import hh.sof03.mybudgetpal.domain.User;
+import hh.sof03.mybudgetpal.payload.response.MessageResponse;
 import hh.sof03.mybudgetpal.security.services.UserService;
+import hh.sof03.mybudgetpal.services.CashFlowService;
+import hh.sof03.mybudgetpal.services.MerchantSketchService;
+import hh.sof03.mybudgetpal.services.MonthlyRollupService;
+import hh.sof03.mybudgetpal.services.RollupDrift;
+import hh.sof03.mybudgetpal.services.StatisticsCache;
+import hh.sof03.mybudgetpal.statistics.LedgerAggregator;
 import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
@@ -28,165 +41,257 @@ public class StatisticController {
 
     private static final Logger log = LoggerFactory.getLogger(EntryController.class);
 
+    // Clients may keep the statistics but must check the ETag before using them
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+
+    @Autowired
+    private StatisticsCache statisticsCache;
+
     @Autowired
-    private EntryRepository entryRepository;
+    private CashFlowService cashFlowService;
 
     @Autowired
-    private KeywordRepository keywordRepository;
+    private MerchantSketchService merchantSketchService;
 
     @Autowired
     private UserService userService;
 
     /**
-     * Get statistics for the user
+     * Get statistics for the user, optionally only for the entries between
+     * two dates. The response has a strong ETag, and a request whose
+     * If-None-Match has the current ETag gets 304 without the statistics
+     * being computed.
      * 
+     * @param from first date included (yyyy-MM-dd), optional
+     * @param to last date included (yyyy-MM-dd), optional
      * @param request
      * @return ResponseEntity<Map<String, Object>> with the statistics
      */
    @GetMapping("/api/statistics")
-    public ResponseEntity<Map<String, Object>> stats(HttpServletRequest request) {
+    public ResponseEntity<Map<String, Object>> stats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
         User user = userService.getUserFromRequest(request);
         if (user == null) {
             return ResponseEntity.status(401).body(null);
         }
+        if (from != null && to != null && from.isAfter(to)) {
+            return ResponseEntity.badRequest().body(null);
+        }
 
-        List<Entry> entries = entryRepository.findAllByUserId(user.getId());
-        List<Keyword> includedKeywords = keywordRepository.findAllByUserIdAndType(user.getId(), KeywordType.INCLUDED);
+        String eTag = statisticsCache.getETag(user.getId());
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CACHE_CONTROL).build();
+        }
 
-        Map<String, Double> categoryExpenses = new HashMap<>();
-        Map<String, Map<String, Double>> monthlyExpenses = new HashMap<>();
-        double balance = 0.0;
-
-        // Initialize all categories in the map
-        for (Keyword keyword : includedKeywords) {
-            categoryExpenses.put(keyword.getCategory(), 0.0);
-        }
-
-        // Calculate expenses for each category
-        for (Entry entry : entries) {
-            log.info("Entry: " + entry.getTitle());
-            List<String> categories = getCategories(entry.getTitle(), includedKeywords, user);
-            double amount = entry.getAmount().doubleValue();
-            balance += amount;
-
-            if (categories.isEmpty()) {
-                // If no category matches, add to Other Expenses or Other Income
-                String otherCategory = amount < 0 ? "Other Expenses" : "Other Income";
-                categoryExpenses.put(otherCategory, categoryExpenses.getOrDefault(otherCategory, 0.0) + amount);
-            } else {
-                // Add amount to the matched category
-                String category = categories.get(0);
-                categoryExpenses.put(category, categoryExpenses.get(category) + amount);
-            }
+        String range = from == null && to == null ? "" : from + "/" + to;
+        StatisticsCache.StatisticsResult result = statisticsCache.get(user.getId(), range,
+            () -> computeStatistics(user.getId(), from, to));
+        return ResponseEntity.ok().eTag(result.eTag()).cacheControl(CACHE_CONTROL).body(result.statistics());
+    }
 
-            // Monthly expenses
-            String month = entry.getDate().getMonth().toString();
-            monthlyExpenses.putIfAbsent(month, new HashMap<>());
-            if (categories.isEmpty()) {
-                String otherCategory = amount < 0 ? "Other Expenses" : "Other Income";
-                monthlyExpenses.get(month).put(otherCategory, monthlyExpenses.get(month).getOrDefault(otherCategory, 0.0) + amount);
-            } else {
-                String category = categories.get(0);
-                monthlyExpenses.get(month).put(category, monthlyExpenses.get(month).getOrDefault(category, 0.0) + amount);
-            }
+    /**
+     * Compute the statistics of the user from the monthly rollups, which are
+     * built from the entries on the first call
+     * 
+     * @param userId
+     * @param from first date included or null
+     * @param to last date included or null
+     * @return statistics
+     */
+    private Map<String, Object> computeStatistics(String userId, LocalDate from, LocalDate to) {
+        LedgerAggregator totals = new LedgerAggregator();
+        for (MonthlyRollup rollup : monthlyRollupService.getRollups(userId, from, to)) {
+            totals.add(rollup);
         }
 
         // Remove categories with zero values
-        categoryExpenses = categoryExpenses.entrySet()
-            .stream()
-            .filter(entry -> entry.getValue() != 0)
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        Map<String, Double> categoryExpenses = new HashMap<>();
+        long[] categorySums = totals.getCategorySums();
+        long balanceCents = 0;
+        for (int category = 0; category < categorySums.length; category++) {
+            balanceCents += categorySums[category];
+            if (categorySums[category] != 0) {
+                categoryExpenses.put(totals.getCategory(category), toAmount(categorySums[category]));
+            }
+        }
 
-        // Round all values
-        categoryExpenses.replaceAll((k, v) -> Math.round(v * 100.0) / 100.0);
-        monthlyExpenses.forEach((month, categories) -> categories.replaceAll((k, v) -> Math.round(v * 100.0) / 100.0));
+        // monthlyExpenses groups the months of all years by the month name, monthlyExpensesByYearMonth by yyyy-MM
+        long[][] monthOfYearSums = new long[12][categorySums.length];
+        boolean[][] monthOfYearHasEntries = new boolean[12][categorySums.length];
+        Map<String, Map<String, Double>> yearMonthlyExpenses = new TreeMap<>();
+        totals.forEach((month, category, sum, count, income, expense) -> {
+            int categoryId = totals.categoryId(category);
+            int monthOfYear = Math.floorMod(month, 12);
+            monthOfYearSums[monthOfYear][categoryId] += sum;
+            monthOfYearHasEntries[monthOfYear][categoryId] = true;
+            yearMonthlyExpenses.computeIfAbsent(LedgerAggregator.toYearMonth(month).toString(), m -> new HashMap<>())
+                .put(category, toAmount(sum));
+        });
+
+        Map<String, Map<String, Double>> monthlyExpenses = new HashMap<>();
+        for (int monthOfYear = 0; monthOfYear < 12; monthOfYear++) {
+            for (int category = 0; category < categorySums.length; category++) {
+                if (monthOfYearHasEntries[monthOfYear][category]) {
+                    monthlyExpenses.computeIfAbsent(Month.of(monthOfYear + 1).toString(), m -> new HashMap<>())
+                        .put(totals.getCategory(category), toAmount(monthOfYearSums[monthOfYear][category]));
+                }
+            }
+        }
 
         Map<String, Object> response = new HashMap<>();
         response.put("categoryExpenses", categoryExpenses);
         response.put("monthlyExpenses", monthlyExpenses);
-        response.put("balance", Math.round(balance * 100.0) / 100.0);
+        response.put("monthlyExpensesByYearMonth", yearMonthlyExpenses);
+        response.put("balance", toAmount(balanceCents));
+        return response;
+    }
+
+    /**
+     * Get the income and expenses of the user per day, week, month or year.
+     * Weeks start on Monday.
+     * 
+     * @param bucket day, week, month or year, month by default
+     * @param from first date included (yyyy-MM-dd), optional
+     * @param to last date included (yyyy-MM-dd), optional
+     * @param request
+     * @return ResponseEntity<Map<String, Object>> with the totals of each bucket that has entries
+     */
+    @GetMapping("/api/statistics/timeseries")
+    public ResponseEntity<Map<String, Object>> timeSeries(
+            @RequestParam(defaultValue = "month") String bucket,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
+        User user = userService.getUserFromRequest(request);
+        if (user == null) {
+            return ResponseEntity.status(401).body(null);
+        }
+        CashFlowService.Bucket timeBucket = CashFlowService.Bucket.fromString(bucket);
+        if (timeBucket == null || (from != null && to != null && from.isAfter(to))) {
+            return ResponseEntity.badRequest().body(null);
+        }
 
+        Map<String, Object> response = new HashMap<>();
+        response.put("bucket", timeBucket.name().toLowerCase());
+        response.put("from", from);
+        response.put("to", to);
+        response.put("series", cashFlowService.getTimeSeries(user.getId(), timeBucket, from, to));
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Get suitable categories for the keyword
+     * Get the user's top merchant titles by spend and by number of entries.
+     * The totals are estimates from a sketch: each is at most its error
+     * above the true total.
      * 
-     * @param keyword
-     * @param allKeywords
-     * @param user
-     * @return List<String> of suitable categories for the keyword
+     * @param limit number of merchants in each list, 10 by default
+     * @param request
+     * @return ResponseEntity<Map<String, Object>> with the top merchants
      */
-    private List<String> getCategories(String keyword, List<Keyword> allKeywords, User user) {
-      log.info("Keyword: " + keyword, "AllKeywords: " + allKeywords, "User: " + user);
-        ArrayList<String> suitableCategories = new ArrayList<>();
-        ArrayList<String> exactMatchCategories = new ArrayList<>();
-        ArrayList<String> commonWordCategories = new ArrayList<>();
-
-        if (keyword == null || keyword.isEmpty() || user == null) {
-            return suitableCategories;
-        }
-
-        keyword = keyword.toLowerCase();
-        String bestCategory = null;
-        int mostCommonWords = -1;
-
-        // Loop through all categories and their titles
-        for (Keyword keywordEntity : allKeywords) {
-            for (String title : keywordEntity.getKeywords()) {
-                title = title.toLowerCase();
-
-                // If keyword exactly matches the category's title, add the category to the list
-                if (keyword.equals(title)) {
-                    exactMatchCategories.add(keywordEntity.getCategory());
-                    continue;
-                } else if (keyword.contains(title)) {
-                    int commonWordCount = countCommonWords(keyword, title); // calculate the number of common words
-                    if (commonWordCount > mostCommonWords) {
-                        mostCommonWords = commonWordCount;
-                        bestCategory = keywordEntity.getCategory(); // set the best category if the number of common words is higher than the previous best
-                    } else if (commonWordCount == mostCommonWords) {
-                        commonWordCategories.add(keywordEntity.getCategory()); // add the category to the list of suitable categories if the number of common words is the same as the previous best
-                    }
-                }
-            }
+    @GetMapping("/api/statistics/top-merchants")
+    public ResponseEntity<Map<String, Object>> topMerchants(@RequestParam(defaultValue = "10") int limit,
+            HttpServletRequest request) {
+        User user = userService.getUserFromRequest(request);
+        if (user == null) {
+            return ResponseEntity.status(401).body(null);
         }
-        
-        // Add the exact match categories to the list of suitable categories
-        suitableCategories.addAll(exactMatchCategories);
-        
-        // Add the common word categories to the list of suitable categories if it is not empty
-        if (!commonWordCategories.isEmpty()) {
-            suitableCategories.addAll(commonWordCategories);
+        if (limit < 1 || limit > merchantSketchService.getSketchSize()) {
+            return ResponseEntity.badRequest().body(null);
         }
 
-        // Add the best category to the list of suitable categories if it is not null
-        if (bestCategory != null) {
-            suitableCategories.add(bestCategory);
+        MerchantSketch sketch = merchantSketchService.getSketch(user.getId());
+
+        List<Map<String, Object>> bySpend = new ArrayList<>();
+        for (MerchantCount count : sketch.getBySpend().subList(0, Math.min(limit, sketch.getBySpend().size()))) {
+            Map<String, Object> merchant = new HashMap<>();
+            merchant.put("title", count.getTitle());
+            merchant.put("spend", toAmount(count.getCount()));
+            merchant.put("error", toAmount(count.getError()));
+            bySpend.add(merchant);
+        }
+        List<Map<String, Object>> byCount = new ArrayList<>();
+        for (MerchantCount count : sketch.getByCount().subList(0, Math.min(limit, sketch.getByCount().size()))) {
+            Map<String, Object> merchant = new HashMap<>();
+            merchant.put("title", count.getTitle());
+            merchant.put("count", count.getCount());
+            merchant.put("error", count.getError());
+            byCount.add(merchant);
         }
 
-        return suitableCategories;
+        Map<String, Object> response = new HashMap<>();
+        response.put("bySpend", bySpend);
+        response.put("byCount", byCount);
+        return ResponseEntity.ok(response);
     }
 
     /**
-     * Count the number of common words between the keyword and the title
+     * Rebuild the monthly rollups of the user from the entries
      * 
-     * @param keyword
-     * @param title
-     * @return int count of common words
+     * @param request
+     * @return MessageResponse with success or error message
      */
-    private int countCommonWords(String keyword, String title) {
-        String[] keywords = keyword.split("\\s+"); // Split words based on whitespace
-        String[] titleWords = title.split("\\s+"); // Split words based on whitespace
-        int matchCount = 0;
-        for (String word : keywords) {
-            for (String titleWord : titleWords) {
-                if (word.equals(titleWord)) {
-                    matchCount++;
-                    break; // When a match is found, no need to continue checking this word
-                }
+    @PostMapping("/api/statistics/rollups/rebuild")
+    public ResponseEntity<MessageResponse> rebuildRollups(HttpServletRequest request) {
+        User user = userService.getUserFromRequest(request);
+        if (user == null) {
+            return ResponseEntity.badRequest().body(new MessageResponse("User not found or invalid token", "error"));
+        }
+
+        int rollups = monthlyRollupService.rebuild(user.getId());
+        return ResponseEntity.ok(new MessageResponse("Rebuilt " + rollups + " monthly rollups", "success"));
+    }
+
+    /**
+     * Compare the monthly rollups of the user to the entries
+     * 
+     * @param request
+     * @return ResponseEntity<Map<String, Object>> with the rollups that differ
+     */
+    @GetMapping("/api/statistics/rollups/verify")
+    public ResponseEntity<Map<String, Object>> verifyRollups(HttpServletRequest request) {
+        User user = userService.getUserFromRequest(request);
+        if (user == null) {
+            return ResponseEntity.status(401).body(null);
+        }
+
+        List<RollupDrift> drift = monthlyRollupService.verify(user.getId());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("consistent", drift.isEmpty());
+        response.put("drift", drift);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Check the If-None-Match header against the ETag, using the weak
+     * comparison the header calls for
+     * 
+     * @param ifNoneMatch
+     * @param eTag
+     * @return true if the client has the current version
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
             }
         }
-        return matchCount;
+        return false;
+    }
+
+    private static double toAmount(long cents) {
+        return cents / 100.0;
     }
 }
@@ -7,6 +7,8 @@ import hh.sof03.mybudgetpal.domain.User;
 import hh.sof03.mybudgetpal.payload.response.MessageResponse;
 import hh.sof03.mybudgetpal.payload.request.KeywordRequest;
 import hh.sof03.mybudgetpal.security.services.UserService;
+import hh.sof03.mybudgetpal.services.EntryCategoryService;
+import hh.sof03.mybudgetpal.services.ImportLogService;
 
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -23,6 +25,7 @@ import org.slf4j.LoggerFactory;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +44,12 @@ public class UserController {
   @Autowired
   private KeywordRepository keywordRepository;
 
+  @Autowired
+  private EntryCategoryService entryCategoryService;
+
+  @Autowired
+  private ImportLogService importLogService;
+
   /**
    * Get all keywords for the user
    * 
@@ -135,12 +144,22 @@ public class UserController {
           .body(new MessageResponse("You do not have permission to update this keyword", "error"));
     }
 
+    List<String> changedKeywords = new ArrayList<>(existingKeyword.getKeywords());
+    changedKeywords.addAll(updatedKeyword.getKeywords());
+    boolean excludedChanged = existingKeyword.getType() == KeywordType.EXCLUDED
+        || updatedKeyword.getType() == KeywordType.EXCLUDED;
+
     // Update keyword details
     existingKeyword.setCategory(updatedKeyword.getCategory());
     existingKeyword.setKeywords(updatedKeyword.getKeywords());
     existingKeyword.setType(updatedKeyword.getType());
 
     keywordRepository.save(existingKeyword);
+    entryCategoryService.keywordsChanged(existingKeyword.getUserId(), changedKeywords);
+    if (excludedChanged) {
+      // Rows skipped by the old excluded keywords can be imported from the same files again
+      importLogService.forget(existingKeyword.getUserId());
+    }
 
     return ResponseEntity.ok(new MessageResponse("Keyword updated successfully", "succes"));
   }
@@ -167,6 +186,10 @@ public class UserController {
 
     Keyword newKeyword = new Keyword(keyword.getKeywords(), keyword.getCategory(), keyword.getType(), user.getId());
     keywordRepository.save(newKeyword);
+    entryCategoryService.keywordsChanged(user.getId(), newKeyword.getKeywords());
+    if (newKeyword.getType() == KeywordType.EXCLUDED) {
+      importLogService.forget(user.getId());
+    }
 
     return ResponseEntity.ok(newKeyword);
   }
@@ -200,6 +223,11 @@ public class UserController {
     // of ADMIN
     if (keyword.getUserId().equals(user.getId()) || user.getRoles().contains("ROLE_ADMIN")) {
       keywordRepository.deleteById(id);
+      entryCategoryService.keywordsChanged(keyword.getUserId(), keyword.getKeywords());
+      if (keyword.getType() == KeywordType.EXCLUDED) {
+        // Rows skipped by the deleted keyword can be imported from the same files again
+        importLogService.forget(keyword.getUserId());
+      }
 
       return ResponseEntity.ok(new MessageResponse("Keyword deleted successfully", "succes"));
     }
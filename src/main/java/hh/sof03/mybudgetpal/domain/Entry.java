@@ -1,13 +1,18 @@
 package hh.sof03.mybudgetpal.domain;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Document(collection = "entries")
+@CompoundIndex(name = "user_bank_reference", def = "{'user_id': 1, 'bank_name': 1, 'reference_id': 1}", unique = true)
+@CompoundIndex(name = "user_category", def = "{'user_id': 1, 'category': 1}")
+@CompoundIndex(name = "user_date_id", def = "{'user_id': 1, 'date': 1, '_id': 1}")
 public class Entry {
 
   @Id
@@ -15,6 +20,8 @@ public class Entry {
 
   private LocalDate date;
 
+  // Stored as a decimal so it can be summed in aggregations, older string amounts are converted by EntryAmountMigration
+  @Field(targetType = FieldType.DECIMAL128)
   private BigDecimal amount;
 
   private String title;
@@ -27,6 +34,9 @@ public class Entry {
   
   @Field("user_id")
   private String userId;
+
+  // Category resolved from the user's keywords, null for entries imported before categories were stored
+  private String category;
   
   public Entry() {
   }
@@ -91,5 +101,13 @@ public class Entry {
   public void setUserId(String userId) {
     this.userId = userId;
   }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public void setCategory(String category) {
+    this.category = category;
+  }
     
 } 
@@ -0,0 +1,20 @@
+package hh.sof03.mybudgetpal.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Entry as it is listed to its owner, without the user id
+ */
+public record EntryListItem(
+    @Id String id,
+    LocalDate date,
+    BigDecimal amount,
+    String title,
+    @Field("reference_id") String referenceId,
+    @Field("bank_name") String bankName,
+    String category) {
+}
@@ -1,10 +1,16 @@
 package hh.sof03.mybudgetpal.domain;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 public interface EntryRepository extends MongoRepository<Entry, String> {
     List<Entry> findAllByUserId(String userId);
-    Entry findByReferenceIdAndBankName(String referenceId, String bankName);
+
+    List<EntryListItem> findListItemsByUserId(String userId);
+
+    @Query(value = "{ 'user_id': ?0, 'date': { $gte: ?1, $lte: ?2 } }", fields = "{ 'user_id': 0, '_class': 0 }")
+    List<EntryListItem> findListItemsByUserIdAndDateRange(String userId, LocalDate from, LocalDate to);
 }
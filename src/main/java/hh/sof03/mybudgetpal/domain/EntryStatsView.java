@@ -0,0 +1,24 @@
+package hh.sof03.mybudgetpal.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.springframework.data.annotation.Id;
+
+/**
+ * Fields of an entry that statistics are computed from. The title is only
+ * needed to categorize entries that have no stored category.
+ */
+public record EntryStatsView(
+    @Id String id,
+    LocalDate date,
+    BigDecimal amount,
+    String title,
+    String category) {
+
+  /**
+   * Fields to read from the entries collection
+   */
+  public static final String[] FIELDS = { "date", "amount", "title", "category" };
+
+}
@@ -0,0 +1,85 @@
+package hh.sof03.mybudgetpal.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * A statement file the user has imported, identified by the SHA-256 digest
+ * of its content
+ */
+@Document(collection = "import_log")
+@CompoundIndex(name = "user_sha256", def = "{'user_id': 1, 'sha256': 1}", unique = true)
+public class ImportLog {
+
+  @Id
+  private String id;
+
+  @Field("user_id")
+  private String userId;
+
+  private String sha256;
+
+  @Field("file_name")
+  private String fileName;
+
+  @Field("bank_name")
+  private String bankName;
+
+  @Field("row_count")
+  private int rowCount;
+
+  private int inserted;
+
+  @Field("imported_at")
+  private LocalDateTime importedAt;
+
+  public ImportLog() {
+  }
+
+  public ImportLog(String userId, String sha256, String fileName, String bankName, int rowCount, int inserted) {
+    this.userId = userId;
+    this.sha256 = sha256;
+    this.fileName = fileName;
+    this.bankName = bankName;
+    this.rowCount = rowCount;
+    this.inserted = inserted;
+    this.importedAt = LocalDateTime.now();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getSha256() {
+    return sha256;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public String getBankName() {
+    return bankName;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getInserted() {
+    return inserted;
+  }
+
+  public LocalDateTime getImportedAt() {
+    return importedAt;
+  }
+
+}
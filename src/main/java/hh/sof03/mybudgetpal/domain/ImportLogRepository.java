@@ -0,0 +1,11 @@
+package hh.sof03.mybudgetpal.domain;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface ImportLogRepository extends MongoRepository<ImportLog, String> {
+    boolean existsByUserIdAndSha256(String userId, String sha256);
+    List<ImportLog> findAllByUserIdOrderByImportedAtDesc(String userId);
+    long deleteByUserId(String userId);
+}
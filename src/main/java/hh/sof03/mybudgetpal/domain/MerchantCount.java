@@ -0,0 +1,36 @@
+package hh.sof03.mybudgetpal.domain;
+
+/**
+ * Estimated total of one merchant title in a merchant sketch. The estimate
+ * is at most error above the true total and never below it.
+ */
+public class MerchantCount {
+
+  private String title;
+
+  private long count;
+
+  private long error;
+
+  public MerchantCount() {
+  }
+
+  public MerchantCount(String title, long count, long error) {
+    this.title = title;
+    this.count = count;
+    this.error = error;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getError() {
+    return error;
+  }
+
+}
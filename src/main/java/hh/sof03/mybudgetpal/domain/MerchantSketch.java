@@ -0,0 +1,74 @@
+package hh.sof03.mybudgetpal.domain;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Most frequent merchant titles of a user by spend and by number of entries,
+ * kept as Space-Saving sketches. The counts are sorted from the largest.
+ */
+@Document(collection = "merchant_sketches")
+public class MerchantSketch {
+
+  // Id of the user
+  @Id
+  private String userId;
+
+  private int capacity;
+
+  // Spend is the sum of the negative amounts in cents, as a positive number
+  @Field("by_spend")
+  private List<MerchantCount> bySpend = new ArrayList<>();
+
+  @Field("by_count")
+  private List<MerchantCount> byCount = new ArrayList<>();
+
+  @Field("updated_at")
+  private LocalDateTime updatedAt;
+
+  public MerchantSketch() {
+  }
+
+  public MerchantSketch(String userId, int capacity) {
+    this.userId = userId;
+    this.capacity = capacity;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public List<MerchantCount> getBySpend() {
+    return bySpend;
+  }
+
+  public void setBySpend(List<MerchantCount> bySpend) {
+    this.bySpend = bySpend;
+  }
+
+  public List<MerchantCount> getByCount() {
+    return byCount;
+  }
+
+  public void setByCount(List<MerchantCount> byCount) {
+    this.byCount = byCount;
+  }
+
+  public LocalDateTime getUpdatedAt() {
+    return updatedAt;
+  }
+
+  public void setUpdatedAt(LocalDateTime updatedAt) {
+    this.updatedAt = updatedAt;
+  }
+
+}
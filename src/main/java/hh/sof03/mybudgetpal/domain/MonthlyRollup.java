@@ -0,0 +1,123 @@
+package hh.sof03.mybudgetpal.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Totals of the entries of one user in one month and category. The amounts
+ * are in cents.
+ */
+@Document(collection = "monthly_rollups")
+@CompoundIndex(name = "user_month_category", def = "{'user_id': 1, 'month': 1, 'category': 1}", unique = true)
+public class MonthlyRollup {
+
+  @Id
+  private String id;
+
+  @Field("user_id")
+  private String userId;
+
+  // Year and month as yyyy-MM
+  private String month;
+
+  private String category;
+
+  private long sum;
+
+  private long count;
+
+  private long income;
+
+  private long expense;
+
+  public MonthlyRollup() {
+  }
+
+  public MonthlyRollup(String userId, String month, String category) {
+    this.userId = userId;
+    this.month = month;
+    this.category = category;
+  }
+
+  public MonthlyRollup(String userId, String month, String category, long sum, long count, long income,
+      long expense) {
+    this(userId, month, category);
+    this.sum = sum;
+    this.count = count;
+    this.income = income;
+    this.expense = expense;
+  }
+
+  /**
+   * Add an entry amount to the totals
+   *
+   * @param cents
+   */
+  public void add(long cents) {
+    sum += cents;
+    count++;
+    if (cents < 0) {
+      expense += cents;
+    } else {
+      income += cents;
+    }
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public String getMonth() {
+    return month;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public long getSum() {
+    return sum;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getIncome() {
+    return income;
+  }
+
+  public long getExpense() {
+    return expense;
+  }
+
+  /**
+   * Take an entry amount away from the totals
+   *
+   * @param cents
+   */
+  public void subtract(long cents) {
+    sum -= cents;
+    count--;
+    if (cents < 0) {
+      expense -= cents;
+    } else {
+      income -= cents;
+    }
+  }
+
+  /**
+   * @param other
+   * @return true if the totals are the same
+   */
+  public boolean hasSameTotals(MonthlyRollup other) {
+    return sum == other.sum && count == other.count && income == other.income && expense == other.expense;
+  }
+
+}
@@ -0,0 +1,15 @@
+package hh.sof03.mybudgetpal.domain;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+public interface MonthlyRollupRepository extends MongoRepository<MonthlyRollup, String> {
+    List<MonthlyRollup> findAllByUserId(String userId);
+
+    @Query("{ 'user_id': ?0, 'month': { $gte: ?1, $lte: ?2 } }")
+    List<MonthlyRollup> findAllByUserIdAndMonthRange(String userId, String fromMonth, String toMonth);
+
+    void deleteAllByUserId(String userId);
+}
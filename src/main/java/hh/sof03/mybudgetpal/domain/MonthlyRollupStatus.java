@@ -0,0 +1,39 @@
+package hh.sof03.mybudgetpal.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks that the monthly rollups of a user have been built from the entries
+ * and are kept up to date since
+ */
+@Document(collection = "monthly_rollup_status")
+public class MonthlyRollupStatus {
+
+  // Id of the user
+  @Id
+  private String userId;
+
+  @Field("built_at")
+  private LocalDateTime builtAt;
+
+  public MonthlyRollupStatus() {
+  }
+
+  public MonthlyRollupStatus(String userId) {
+    this.userId = userId;
+    this.builtAt = LocalDateTime.now();
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  public LocalDateTime getBuiltAt() {
+    return builtAt;
+  }
+
+}
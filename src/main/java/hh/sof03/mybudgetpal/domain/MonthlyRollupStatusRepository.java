@@ -0,0 +1,6 @@
+package hh.sof03.mybudgetpal.domain;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface MonthlyRollupStatusRepository extends MongoRepository<MonthlyRollupStatus, String> {
+}
@@ -0,0 +1,221 @@
+package hh.sof03.mybudgetpal.keywords;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import hh.sof03.mybudgetpal.domain.Keyword;
+
+/**
+ * Chooses the category of an entry from the title, using the INCLUDED
+ * keywords of the user. It is built once from the keywords and gives the
+ * same category as the original rules:
+ *
+ * 1. The first keyword that equals the title decides the category.
+ * 2. Otherwise, every keyword contained in the title is a candidate, in
+ *    keyword order, and is scored by the number of title words that are also
+ *    words of the keyword. A candidate with a higher score than the earlier
+ *    candidates becomes the best one. The first candidate that ties the best
+ *    score seen so far wins over the best one, even if a later candidate
+ *    scores higher.
+ *
+ * Blank keyword strings are left out. The original rules found them in
+ * every title, which gave their category to any title without a better match.
+ *
+ * The keywords contained in the title are found with a KeywordAutomaton, and
+ * the words are scored through an index from each word to the keywords
+ * containing it, so the title is split into words only once.
+ */
+public class CategoryClassifier {
+
+  public static final String OTHER_EXPENSES = "Other Expenses";
+
+  public static final String OTHER_INCOME = "Other Income";
+
+  private static final int[] NO_KEYWORDS = new int[0];
+
+  private final long version;
+
+  // Category of each keyword string, in the order of the keywords
+  private final String[] categories;
+
+  // Lower case keyword string to the index of its first occurrence
+  private final Map<String, Integer> exactMatches = new HashMap<>();
+
+  // Word to the indexes of the keyword strings that have the word, in ascending order
+  private final Map<String, int[]> wordIndex = new HashMap<>();
+
+  private final KeywordAutomaton automaton;
+
+  /**
+   * @param keywords INCLUDED keywords of the user, in the order they are stored
+   * @param version keyword version of the user the classifier was built from
+   */
+  public CategoryClassifier(List<Keyword> keywords, long version) {
+    this.version = version;
+
+    List<String> strings = new ArrayList<>();
+    List<String> stringCategories = new ArrayList<>();
+    for (Keyword keyword : keywords) {
+      if (keyword.getKeywords() == null) {
+        continue;
+      }
+      for (String string : keyword.getKeywords()) {
+        if (string != null && !string.isBlank()) {
+          strings.add(string.toLowerCase());
+          stringCategories.add(keyword.getCategory());
+        }
+      }
+    }
+    categories = stringCategories.toArray(new String[0]);
+
+    Map<String, List<Integer>> words = new HashMap<>();
+    for (int i = 0; i < strings.size(); i++) {
+      exactMatches.putIfAbsent(strings.get(i), i);
+      for (String word : new LinkedHashSet<>(Arrays.asList(splitWords(strings.get(i))))) {
+        words.computeIfAbsent(word, w -> new ArrayList<>()).add(i);
+      }
+    }
+    words.forEach((word, indexes) -> wordIndex.put(word, indexes.stream().mapToInt(Integer::intValue).toArray()));
+
+    automaton = new KeywordAutomaton(strings);
+  }
+
+  /**
+   * Choose the category for the title
+   *
+   * @param title
+   * @return category or null if no keyword matches the title
+   */
+  public String classify(String title) {
+    if (title == null || title.isEmpty() || categories.length == 0) {
+      return null;
+    }
+    title = title.toLowerCase();
+
+    Integer exactMatch = exactMatches.get(title);
+    if (exactMatch != null) {
+      return categories[exactMatch];
+    }
+
+    int[] candidates = findCandidates(title);
+    if (candidates.length == 0) {
+      return null;
+    }
+
+    int[] scores = new int[candidates.length];
+    for (String word : splitWords(title)) {
+      for (int keyword : wordIndex.getOrDefault(word, NO_KEYWORDS)) {
+        int candidate = Arrays.binarySearch(candidates, keyword);
+        if (candidate >= 0) {
+          scores[candidate]++;
+        }
+      }
+    }
+
+    int mostCommonWords = -1;
+    String bestCategory = null;
+    for (int i = 0; i < candidates.length; i++) {
+      if (scores[i] > mostCommonWords) {
+        mostCommonWords = scores[i];
+        bestCategory = categories[candidates[i]];
+      } else if (scores[i] == mostCommonWords) {
+        return categories[candidates[i]];
+      }
+    }
+    return bestCategory;
+  }
+
+  /**
+   * Choose the category for an entry. Entries that no keyword matches are
+   * Other Expenses or Other Income depending on the sign of the amount.
+   *
+   * @param title
+   * @param amount
+   * @return category
+   */
+  public String categorize(String title, BigDecimal amount) {
+    String category = classify(title);
+    if (category != null) {
+      return category;
+    }
+    return amount.signum() < 0 ? OTHER_EXPENSES : OTHER_INCOME;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Find the keyword strings contained in the title
+   *
+   * @param title
+   * @return indexes of the keyword strings in ascending order, without duplicates
+   */
+  private int[] findCandidates(String title) {
+    int[][] found = { NO_KEYWORDS };
+    int[] count = { 0 };
+    automaton.forEachMatch(title, keyword -> {
+      if (count[0] == found[0].length) {
+        found[0] = Arrays.copyOf(found[0], Math.max(8, count[0] * 2));
+      }
+      found[0][count[0]++] = keyword;
+    });
+
+    int[] candidates = Arrays.copyOf(found[0], count[0]);
+    Arrays.sort(candidates);
+    int unique = 0;
+    for (int i = 0; i < candidates.length; i++) {
+      if (unique == 0 || candidates[unique - 1] != candidates[i]) {
+        candidates[unique++] = candidates[i];
+      }
+    }
+    return Arrays.copyOf(candidates, unique);
+  }
+
+  /**
+   * Split the text into words like text.split("\\s+") does
+   *
+   * @param text
+   * @return words
+   */
+  static String[] splitWords(String text) {
+    List<String> words = new ArrayList<>();
+    int start = 0;
+    int i = 0;
+    boolean split = false;
+
+    while (i < text.length()) {
+      if (isWhitespace(text.charAt(i))) {
+        words.add(text.substring(start, i));
+        while (i < text.length() && isWhitespace(text.charAt(i))) {
+          i++;
+        }
+        start = i;
+        split = true;
+      } else {
+        i++;
+      }
+    }
+    if (!split) {
+      return new String[] { text };
+    }
+    words.add(text.substring(start));
+
+    // Like String.split, drop the empty words at the end
+    int size = words.size();
+    while (size > 0 && words.get(size - 1).isEmpty()) {
+      size--;
+    }
+    return words.subList(0, size).toArray(new String[0]);
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+}
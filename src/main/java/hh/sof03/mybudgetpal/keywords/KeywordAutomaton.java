@@ -0,0 +1,210 @@
+package hh.sof03.mybudgetpal.keywords;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton for finding keywords in a text. The automaton is
+ * built once from all keywords and checks a text for every keyword in a
+ * single pass over its characters. Matching ignores case.
+ *
+ * Keywords are identified by their index in the list the automaton was
+ * built from, so that a caller can find out which of them were found. Null
+ * and blank keywords are left out, because they would match every text.
+ */
+public class KeywordAutomaton {
+
+  private static final char[] NO_KEYS = new char[0];
+
+  private static final int[] NO_TARGETS = new int[0];
+
+  private static final int[] NO_PATTERNS = new int[0];
+
+  // Sorted transition characters and their target nodes for each node
+  private final char[][] keys;
+
+  private final int[][] targets;
+
+  private final int[] fail;
+
+  // True if a keyword ends at the node or at one of its suffixes
+  private final boolean[] matches;
+
+  // Indexes of the keywords that end exactly at the node
+  private final int[][] patterns;
+
+  // Nearest proper suffix of the node, other than the root, where a keyword ends, or -1
+  private final int[] dictionaryLink;
+
+  public KeywordAutomaton(List<String> keywords) {
+    List<Map<Character, Integer>> children = new ArrayList<>();
+    List<List<Integer>> ends = new ArrayList<>();
+    children.add(new HashMap<>());
+    ends.add(new ArrayList<>());
+
+    for (int index = 0; index < keywords.size(); index++) {
+      String keyword = keywords.get(index);
+      if (keyword == null || keyword.isBlank()) {
+        continue;
+      }
+      int node = 0;
+      for (char c : keyword.toLowerCase().toCharArray()) {
+        Integer next = children.get(node).get(c);
+        if (next == null) {
+          next = children.size();
+          children.add(new HashMap<>());
+          ends.add(new ArrayList<>());
+          children.get(node).put(c, next);
+        }
+        node = next;
+      }
+      ends.get(node).add(index);
+    }
+
+    int size = children.size();
+    keys = new char[size][];
+    targets = new int[size][];
+    fail = new int[size];
+    matches = new boolean[size];
+    patterns = new int[size][];
+    dictionaryLink = new int[size];
+
+    for (int node = 0; node < size; node++) {
+      List<Integer> nodeEnds = ends.get(node);
+      matches[node] = !nodeEnds.isEmpty();
+      patterns[node] = nodeEnds.isEmpty() ? NO_PATTERNS : nodeEnds.stream().mapToInt(Integer::intValue).toArray();
+      Map<Character, Integer> nodeChildren = children.get(node);
+      if (nodeChildren.isEmpty()) {
+        keys[node] = NO_KEYS;
+        targets[node] = NO_TARGETS;
+        continue;
+      }
+      char[] nodeKeys = new char[nodeChildren.size()];
+      int i = 0;
+      for (char c : nodeChildren.keySet()) {
+        nodeKeys[i++] = c;
+      }
+      Arrays.sort(nodeKeys);
+      int[] nodeTargets = new int[nodeKeys.length];
+      for (i = 0; i < nodeKeys.length; i++) {
+        nodeTargets[i] = nodeChildren.get(nodeKeys[i]);
+      }
+      keys[node] = nodeKeys;
+      targets[node] = nodeTargets;
+    }
+
+    // Breadth-first pass to link every node to its longest proper suffix in the trie
+    Queue<Integer> queue = new ArrayDeque<>();
+    dictionaryLink[0] = -1;
+    for (int child : targets[0]) {
+      fail[child] = 0;
+      dictionaryLink[child] = -1;
+      matches[child] |= matches[0];
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int node = queue.poll();
+      for (int i = 0; i < keys[node].length; i++) {
+        char c = keys[node][i];
+        int child = targets[node][i];
+        int suffix = fail[node];
+        int next = transition(suffix, c);
+        while (next < 0 && suffix != 0) {
+          suffix = fail[suffix];
+          next = transition(suffix, c);
+        }
+        fail[child] = next < 0 ? 0 : next;
+        matches[child] |= matches[fail[child]];
+        int link = fail[child];
+        dictionaryLink[child] = link != 0 && patterns[link].length > 0 ? link : dictionaryLink[link];
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * Check if the text contains any of the keywords
+   *
+   * @param text
+   * @return true if a keyword was found
+   */
+  public boolean containsAny(CharSequence text) {
+    if (text == null) {
+      return false;
+    }
+    if (matches[0]) {
+      return true; // an empty keyword is contained in every text
+    }
+
+    int node = 0;
+    for (int i = 0; i < text.length(); i++) {
+      node = step(node, Character.toLowerCase(text.charAt(i)));
+      if (matches[node]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find every keyword contained in the text. The action is called with the
+   * index of the keyword once for each place where the keyword occurs; an
+   * empty keyword is reported once.
+   *
+   * @param text
+   * @param action called with the index of each found keyword
+   */
+  public void forEachMatch(CharSequence text, IntConsumer action) {
+    if (text == null) {
+      return;
+    }
+    for (int pattern : patterns[0]) {
+      action.accept(pattern);
+    }
+
+    int node = 0;
+    for (int i = 0; i < text.length(); i++) {
+      node = step(node, Character.toLowerCase(text.charAt(i)));
+      if (!matches[node]) {
+        continue;
+      }
+      for (int output = node; output > 0; output = dictionaryLink[output]) {
+        for (int pattern : patterns[output]) {
+          action.accept(pattern);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if the automaton has no keywords
+   */
+  public boolean isEmpty() {
+    return keys.length == 1 && !matches[0];
+  }
+
+  private int step(int node, char c) {
+    while (true) {
+      int next = transition(node, c);
+      if (next >= 0) {
+        return next;
+      }
+      if (node == 0) {
+        return 0;
+      }
+      node = fail[node];
+    }
+  }
+
+  private int transition(int node, char c) {
+    int index = Arrays.binarySearch(keys[node], c);
+    return index >= 0 ? targets[node][index] : -1;
+  }
+
+}
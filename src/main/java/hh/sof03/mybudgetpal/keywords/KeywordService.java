@@ -0,0 +1,94 @@
+package hh.sof03.mybudgetpal.keywords;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Keyword;
+import hh.sof03.mybudgetpal.domain.KeywordRepository;
+import hh.sof03.mybudgetpal.domain.KeywordType;
+
+/**
+ * Keeps the compiled keyword matchers of each user. A matcher is built the
+ * first time it is needed and rebuilt after the user's keywords change.
+ *
+ * Every change to the keywords of a user increments the user's keyword
+ * version. A classifier remembers the version it was built from, so a
+ * classifier built from keywords that changed while it was being built is
+ * not used again.
+ */
+@Service
+public class KeywordService {
+
+  @Autowired
+  private KeywordRepository keywordRepository;
+
+  private final Map<String, KeywordAutomaton> excludedKeywordMatchers = new ConcurrentHashMap<>();
+
+  private final Map<String, CategoryClassifier> categoryClassifiers = new ConcurrentHashMap<>();
+
+  private final Map<String, Long> keywordVersions = new ConcurrentHashMap<>();
+
+  /**
+   * Get the matcher for all excluded keywords of the user
+   *
+   * @param userId
+   * @return KeywordAutomaton
+   */
+  public KeywordAutomaton getExcludedKeywordMatcher(String userId) {
+    return excludedKeywordMatchers.computeIfAbsent(userId, id -> {
+      List<String> keywords = new ArrayList<>();
+      for (Keyword keyword : keywordRepository.findAllByUserIdAndType(id, KeywordType.EXCLUDED)) {
+        if (keyword.getKeywords() != null) {
+          keywords.addAll(keyword.getKeywords());
+        }
+      }
+      return new KeywordAutomaton(keywords);
+    });
+  }
+
+  /**
+   * Get the classifier for the INCLUDED keywords of the user
+   *
+   * @param userId
+   * @return CategoryClassifier
+   */
+  public CategoryClassifier getCategoryClassifier(String userId) {
+    long version = getKeywordVersion(userId);
+    CategoryClassifier classifier = categoryClassifiers.get(userId);
+    if (classifier == null || classifier.getVersion() != version) {
+      classifier = new CategoryClassifier(keywordRepository.findAllByUserIdAndType(userId, KeywordType.INCLUDED),
+          version);
+      categoryClassifiers.put(userId, classifier);
+    }
+    return classifier;
+  }
+
+  /**
+   * Get the version of the user's keywords. The version changes every time
+   * the keywords are saved or deleted while the application is running.
+   *
+   * @param userId
+   * @return keyword version
+   */
+  public long getKeywordVersion(String userId) {
+    return keywordVersions.getOrDefault(userId, 0L);
+  }
+
+  /**
+   * Drop the compiled matchers of the user. Call this after the user's
+   * keywords have been saved or deleted.
+   *
+   * @param userId
+   */
+  public void keywordsChanged(String userId) {
+    keywordVersions.merge(userId, 1L, Long::sum);
+    excludedKeywordMatchers.remove(userId);
+    categoryClassifiers.remove(userId);
+  }
+
+}
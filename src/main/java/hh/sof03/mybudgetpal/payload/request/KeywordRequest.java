@@ -3,6 +3,7 @@ package hh.sof03.mybudgetpal.payload.request;
 import java.util.List;
 
 import hh.sof03.mybudgetpal.domain.KeywordType;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 
 
@@ -12,7 +13,7 @@ public class KeywordRequest {
   private String category;
 
   @NotEmpty(message = "Keywords cannot be empty")
-  private List<String> keywords;
+  private List<@NotBlank(message = "Keywords cannot be blank") String> keywords;
 
   private KeywordType type;
 
@@ -30,7 +30,10 @@ public class HttpRequestLoggingFilter extends OncePerRequestFilter {
         logger.info("Request URL: {}", request.getRequestURL().toString());
         logger.info("Request Method: {}", request.getMethod());
         logger.info("Request Headers: {}", getHeadersInfo(request));
-        logger.info("Request Parameters: {}", request.getParameterMap());
+        // Reading the parameters of a multipart request would parse its whole body
+        if (!isMultipart(request)) {
+            logger.info("Request Parameters: {}", request.getParameterMap());
+        }
 
         filterChain.doFilter(request, response);
 
@@ -39,6 +42,17 @@ public class HttpRequestLoggingFilter extends OncePerRequestFilter {
         logger.info("Request Duration: {} ms", duration);
     }
 
+    /**
+     * Check if the request has a multipart body
+     * 
+     * @param request
+     * @return boolean
+     */
+    private boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+
     /**
      * Get headers information from request
      * 
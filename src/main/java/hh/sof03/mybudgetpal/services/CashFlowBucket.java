@@ -0,0 +1,56 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totals of the entries in one time bucket
+ */
+public class CashFlowBucket {
+
+  private final LocalDate start;
+
+  private final BigDecimal income;
+
+  private final BigDecimal expense;
+
+  private final BigDecimal net;
+
+  private final long count;
+
+  /**
+   * @param start first day of the bucket
+   * @param income sum of the positive amounts
+   * @param expense sum of the negative amounts
+   * @param net sum of all amounts
+   * @param count number of entries
+   */
+  public CashFlowBucket(LocalDate start, BigDecimal income, BigDecimal expense, BigDecimal net, long count) {
+    this.start = start;
+    this.income = income;
+    this.expense = expense;
+    this.net = net;
+    this.count = count;
+  }
+
+  public LocalDate getStart() {
+    return start;
+  }
+
+  public BigDecimal getIncome() {
+    return income;
+  }
+
+  public BigDecimal getExpense() {
+    return expense;
+  }
+
+  public BigDecimal getNet() {
+    return net;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+}
@@ -0,0 +1,118 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+/**
+ * Income and expenses of a user per day, week, month or year. The entries
+ * are grouped and summed by a Mongo aggregation, so only the bucket totals
+ * are read from the database.
+ */
+@Service
+public class CashFlowService {
+
+  /**
+   * Length of a time bucket
+   */
+  public enum Bucket {
+    DAY, WEEK, MONTH, YEAR;
+
+    /**
+     * @param value day, week, month or year
+     * @return bucket or null if the value is not one of them
+     */
+    public static Bucket fromString(String value) {
+      for (Bucket bucket : values()) {
+        if (bucket.name().equalsIgnoreCase(value)) {
+          return bucket;
+        }
+      }
+      return null;
+    }
+  }
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /**
+   * Get the totals of the user's entries per time bucket
+   *
+   * @param userId
+   * @param bucket
+   * @param from first date included, null for no lower limit
+   * @param to last date included, null for no upper limit
+   * @return buckets with entries in date order
+   */
+  public List<CashFlowBucket> getTimeSeries(String userId, Bucket bucket, LocalDate from, LocalDate to) {
+    Criteria criteria = Criteria.where("user_id").is(userId);
+    if (from != null && to != null) {
+      criteria = criteria.and("date").gte(from).lte(to);
+    } else if (from != null) {
+      criteria = criteria.and("date").gte(from);
+    } else if (to != null) {
+      criteria = criteria.and("date").lte(to);
+    }
+
+    // Dates are stored as the start of the day in the server's time zone, so the buckets are cut in the same zone
+    DateOperators.DateTrunc start = DateOperators.DateTrunc.truncateValueOf("date")
+        .to(bucket.name().toLowerCase())
+        .withTimezone(DateOperators.Timezone.valueOf(ZoneId.systemDefault().getId()));
+    if (bucket == Bucket.WEEK) {
+      start = start.startOfWeek(DayOfWeek.MONDAY);
+    }
+    TypedAggregation<Entry> aggregation = Aggregation.newAggregation(Entry.class,
+        Aggregation.match(criteria),
+        Aggregation.project("amount").and(start).as("start"),
+        Aggregation.group("start")
+            .sum(ConditionalOperators.when(ComparisonOperators.valueOf("amount").greaterThanEqualToValue(0))
+                .thenValueOf("amount").otherwise(0))
+            .as("income")
+            .sum(ConditionalOperators.when(ComparisonOperators.valueOf("amount").lessThanValue(0))
+                .thenValueOf("amount").otherwise(0))
+            .as("expense")
+            .sum("amount").as("net")
+            .count().as("count"),
+        Aggregation.sort(Sort.Direction.ASC, "_id"));
+
+    List<CashFlowBucket> buckets = new ArrayList<>();
+    for (Document result : mongoTemplate.aggregate(aggregation, Document.class)) {
+      LocalDate bucketStart = result.get("_id", Date.class).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+      buckets.add(new CashFlowBucket(bucketStart, toBigDecimal(result.get("income")),
+          toBigDecimal(result.get("expense")), toBigDecimal(result.get("net")),
+          ((Number) result.get("count")).longValue()));
+    }
+    return buckets;
+  }
+
+  /**
+   * @param value sum from the aggregation, a decimal or 0 when every summed value was 0
+   * @return value with two decimals
+   */
+  private static BigDecimal toBigDecimal(Object value) {
+    BigDecimal decimal = value instanceof Decimal128 decimal128 ? decimal128.bigDecimalValue()
+        : new BigDecimal(value.toString());
+    return decimal.setScale(2, RoundingMode.HALF_UP);
+  }
+
+}
@@ -0,0 +1,206 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.User;
+import hh.sof03.mybudgetpal.domain.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bulk ingestion of statement files from a server directory for migrations
+ * and back-office loads. The directory has one subdirectory per user, named
+ * after the username, containing the user's CSV files:
+ *
+ * app.ingest.directory/username/statement.csv
+ *
+ * Each file is memory-mapped and imported with the same parsing and
+ * duplicate handling as uploaded files. The files are imported in parallel
+ * by app.ingest.threads threads, by default one per processor. Imported
+ * files are moved to a processed subdirectory and failed files to a failed
+ * subdirectory, so a later scan only picks up new files. A file the user
+ * has already imported is skipped unless the scan is forced.
+ */
+@Service
+public class DropDirectoryIngestionService {
+
+  private static final Logger log = LoggerFactory.getLogger(DropDirectoryIngestionService.class);
+
+  @Autowired
+  private StatementImportService statementImportService;
+
+  @Autowired
+  private ImportLogService importLogService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Value("${app.ingest.directory:}")
+  private String directory;
+
+  @Value("${app.ingest.threads:0}")
+  private int threads;
+
+  private ThreadPoolTaskExecutor scanExecutor;
+
+  private ThreadPoolTaskExecutor fileExecutor;
+
+  private volatile IngestionRun lastRun;
+
+  @PostConstruct
+  public void init() {
+    int fileThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+    scanExecutor = new ThreadPoolTaskExecutor();
+    scanExecutor.setCorePoolSize(1);
+    scanExecutor.setMaxPoolSize(1);
+    scanExecutor.setThreadNamePrefix("ingest-scan-");
+    scanExecutor.initialize();
+
+    fileExecutor = new ThreadPoolTaskExecutor();
+    fileExecutor.setCorePoolSize(fileThreads);
+    fileExecutor.setMaxPoolSize(fileThreads);
+    fileExecutor.setThreadNamePrefix("ingest-file-");
+    fileExecutor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    scanExecutor.shutdown();
+    fileExecutor.shutdown();
+  }
+
+  /**
+   * @return true if app.ingest.directory points to an existing directory
+   */
+  public boolean isConfigured() {
+    return !directory.isBlank() && Files.isDirectory(Path.of(directory));
+  }
+
+  /**
+   * Start scanning the ingestion directory in the background
+   *
+   * @param force if true, files the users have already imported are imported again
+   * @return the started run, or null if a scan is already running
+   */
+  public synchronized IngestionRun start(boolean force) {
+    if (lastRun != null && lastRun.getStatus() == IngestionRun.Status.RUNNING) {
+      return null;
+    }
+
+    IngestionRun run = new IngestionRun();
+    lastRun = run;
+    scanExecutor.execute(() -> scan(Path.of(directory), run, force));
+    return run;
+  }
+
+  /**
+   * @return the latest run or null if no scan has been started
+   */
+  public IngestionRun getLastRun() {
+    return lastRun;
+  }
+
+  private void scan(Path root, IngestionRun run, boolean force) {
+    List<Future<?>> tasks = new ArrayList<>();
+
+    try (DirectoryStream<Path> userDirectories = Files.newDirectoryStream(root, Files::isDirectory)) {
+      for (Path userDirectory : userDirectories) {
+        String username = userDirectory.getFileName().toString();
+        Optional<User> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+          run.addUnknownUser(username);
+          continue;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(userDirectory, this::isStatementFile)) {
+          for (Path file : files) {
+            run.fileQueued();
+            tasks.add(fileExecutor.submit(() -> ingestFile(file, user.get(), run, force)));
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.error("Scanning ingestion directory " + root + " failed", e);
+    } finally {
+      waitFor(tasks);
+      run.finish();
+      log.info("Ingested {} files, {} rows in {} ms ({} rows/s)", run.getFiles(), run.getRows(),
+          run.getElapsedMillis(), run.getRowsPerSecond());
+    }
+  }
+
+  private boolean isStatementFile(Path file) {
+    return Files.isRegularFile(file) && file.getFileName().toString().toLowerCase().endsWith(".csv");
+  }
+
+  private void ingestFile(Path file, User user, IngestionRun run, boolean force) {
+    FileImportStatus status = new FileImportStatus(user.getUsername() + "/" + file.getFileName());
+    long size = 0;
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      size = channel.size();
+      MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      String sha256 = ImportLogService.sha256(content);
+
+      if (!force && importLogService.isImported(user.getId(), sha256)) {
+        status.setSha256(sha256);
+        status.setStatus(FileImportStatus.Status.ALREADY_IMPORTED);
+      } else {
+        statementImportService.importStatement(content, sha256, file.getFileName().toString(), user, status);
+      }
+    } catch (Exception e) {
+      if (status.getError() == null) {
+        status.setError(e.getMessage());
+      }
+      status.setStatus(FileImportStatus.Status.FAILED);
+      log.error("Ingestion of file " + file + " failed", e);
+    }
+
+    run.addFile(status, size);
+    moveFile(file, status.getStatus() == FileImportStatus.Status.FAILED ? "failed" : "processed");
+  }
+
+  private void moveFile(Path file, String subdirectory) {
+    try {
+      Path target = file.resolveSibling(subdirectory);
+      Files.createDirectories(target);
+      Files.move(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.warn("Could not move ingested file " + file, e);
+    }
+  }
+
+  private void waitFor(List<Future<?>> tasks) {
+    for (Future<?> task : tasks) {
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        log.error("Ingestion task failed", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,176 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+/**
+ * Collects entries into fixed-size batches and writes each batch to the
+ * database with a single unordered bulk insert.
+ *
+ * Entries that already exist are rejected by the unique
+ * (user_id, bank_name, reference_id) index and counted as duplicates.
+ * The entries that were actually inserted are passed to the optional
+ * listener after each batch. The optional lock is held from the insert until
+ * the listener has returned.
+ *
+ * The last batch is written only by an explicit flush. Closing the writer
+ * discards the entries that have not been flushed, so a writer left because
+ * of an exception does not insert part of a batch.
+ */
+public class EntryBatchWriter implements AutoCloseable {
+
+  private final MongoTemplate mongoTemplate;
+
+  private final int batchSize;
+
+  private final List<Entry> batch;
+
+  private int insertedCount = 0;
+
+  private int duplicateCount = 0;
+
+  private int batchCount = 0;
+
+  private final Consumer<List<Entry>> insertListener;
+
+  private final Lock lock;
+
+  public EntryBatchWriter(MongoTemplate mongoTemplate, int batchSize) {
+    this(mongoTemplate, batchSize, null, null);
+  }
+
+  /**
+   * @param mongoTemplate
+   * @param batchSize
+   * @param insertListener called with the inserted entries of each batch,
+   *                       without the duplicates; may be null
+   * @param lock held while each batch is inserted and passed to the
+   *             listener; may be null
+   */
+  public EntryBatchWriter(MongoTemplate mongoTemplate, int batchSize, Consumer<List<Entry>> insertListener,
+      Lock lock) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1");
+    }
+    this.mongoTemplate = mongoTemplate;
+    this.batchSize = batchSize;
+    this.batch = new ArrayList<>(batchSize);
+    this.insertListener = insertListener;
+    this.lock = lock;
+  }
+
+  /**
+   * Add an entry to the current batch, flushing the batch when it is full
+   *
+   * @param entry
+   */
+  public void add(Entry entry) {
+    batch.add(entry);
+    if (batch.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Write the current batch to the database
+   */
+  public void flush() {
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    if (lock != null) {
+      lock.lock();
+    }
+    try {
+      insertBatch();
+    } finally {
+      if (lock != null) {
+        lock.unlock();
+      }
+    }
+
+    batchCount++;
+    batch.clear();
+  }
+
+  private void insertBatch() {
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class);
+    bulkOperations.insert(batch);
+
+    List<Entry> inserted = batch;
+    try {
+      BulkWriteResult result = bulkOperations.execute();
+      insertedCount += result.getInsertedCount();
+    } catch (BulkOperationException e) {
+      // Unordered inserts keep going after an error, so only duplicates are expected here
+      for (BulkWriteError error : e.getErrors()) {
+        if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+          throw e;
+        }
+      }
+      insertedCount += e.getResult().getInsertedCount();
+      duplicateCount += e.getErrors().size();
+      inserted = withoutRejected(e.getErrors());
+    }
+
+    if (insertListener != null && !inserted.isEmpty()) {
+      insertListener.accept(new ArrayList<>(inserted));
+    }
+  }
+
+  /**
+   * @param errors
+   * @return entries of the current batch that the errors did not reject
+   */
+  private List<Entry> withoutRejected(List<BulkWriteError> errors) {
+    Set<Integer> rejected = new HashSet<>();
+    for (BulkWriteError error : errors) {
+      rejected.add(error.getIndex());
+    }
+    List<Entry> inserted = new ArrayList<>(batch.size() - rejected.size());
+    for (int i = 0; i < batch.size(); i++) {
+      if (!rejected.contains(i)) {
+        inserted.add(batch.get(i));
+      }
+    }
+    return inserted;
+  }
+
+  /**
+   * Discard the entries that have not been flushed. Call flush first to
+   * write them.
+   */
+  @Override
+  public void close() {
+    batch.clear();
+  }
+
+  public int getInsertedCount() {
+    return insertedCount;
+  }
+
+  public int getDuplicateCount() {
+    return duplicateCount;
+  }
+
+  public int getBatchCount() {
+    return batchCount;
+  }
+
+}
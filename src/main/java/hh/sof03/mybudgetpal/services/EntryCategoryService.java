@@ -0,0 +1,286 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.KeywordAutomaton;
+import hh.sof03.mybudgetpal.keywords.KeywordService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the category stored on the entries up to date with the user's
+ * keywords. After the keywords change, the entries whose title contains one
+ * of the changed keyword strings are categorized again in the background.
+ * Only those entries can get a different category, because a keyword that
+ * is not contained in a title takes no part in choosing its category.
+ *
+ * Re-categorizations run one at a time, so an older run never overwrites the
+ * categories written by a newer one. Changes made while a user's run is
+ * queued are merged into that run.
+ */
+@Service
+public class EntryCategoryService {
+
+  private static final Logger log = LoggerFactory.getLogger(EntryCategoryService.class);
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private KeywordService keywordService;
+
+  @Autowired
+  private MonthlyRollupService monthlyRollupService;
+
+  @Autowired
+  private LedgerLocks ledgerLocks;
+
+  @Value("${app.import.batchSize:500}")
+  private int batchSize;
+
+  private final Map<String, PendingChange> pendingChanges = new ConcurrentHashMap<>();
+
+  private volatile String runningUserId;
+
+  private ThreadPoolTaskExecutor executor;
+
+  /**
+   * Keyword strings changed since the user's entries were last categorized
+   */
+  private static class PendingChange {
+
+    private final Set<String> keywords = new HashSet<>();
+
+    private boolean allEntries = false;
+
+  }
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setThreadNamePrefix("recategorize-");
+    executor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Drop the compiled keyword matchers of the user and categorize the
+   * affected entries again. Call this after the user's keywords have been
+   * saved or deleted.
+   *
+   * @param userId
+   * @param changedKeywords keyword strings that were added or removed, both
+   *                        the old and the new strings of an updated keyword
+   */
+  public void keywordsChanged(String userId, Collection<String> changedKeywords) {
+    boolean queued = schedule(userId, changedKeywords, false);
+    // The keyword version changes after the run is marked pending, so stored categories are never trusted too early
+    keywordService.keywordsChanged(userId);
+    if (queued) {
+      executor.execute(() -> recategorize(userId));
+    }
+  }
+
+  /**
+   * Categorize all entries of the user again in the background
+   *
+   * @param userId
+   */
+  public void recategorizeAll(String userId) {
+    if (schedule(userId, Set.of(), true)) {
+      executor.execute(() -> recategorize(userId));
+    }
+  }
+
+  /**
+   * Check if the stored categories of the user may be out of date because a
+   * re-categorization is queued or running
+   *
+   * @param userId
+   * @return true if the user's entries are being categorized again
+   */
+  public boolean isRecategorizing(String userId) {
+    return pendingChanges.containsKey(userId) || userId.equals(runningUserId);
+  }
+
+  /**
+   * Add the change to the user's pending change
+   *
+   * @param userId
+   * @param changedKeywords
+   * @param allEntries
+   * @return true if the user had no pending change and a run must be started
+   */
+  private boolean schedule(String userId, Collection<String> changedKeywords, boolean allEntries) {
+    boolean[] created = { false };
+    pendingChanges.compute(userId, (id, change) -> {
+      if (change == null) {
+        change = new PendingChange();
+        created[0] = true;
+      }
+      for (String keyword : changedKeywords) {
+        if (keyword != null) {
+          change.keywords.add(keyword.toLowerCase());
+        }
+      }
+      change.allEntries |= allEntries;
+      return change;
+    });
+    return created[0];
+  }
+
+  private void recategorize(String userId) {
+    runningUserId = userId;
+    try {
+      PendingChange change = pendingChanges.remove(userId);
+      CategoryClassifier classifier = keywordService.getCategoryClassifier(userId);
+      KeywordAutomaton changedKeywords = change.allEntries ? null : new KeywordAutomaton(new ArrayList<>(change.keywords));
+
+      Query query = new Query(Criteria.where("user_id").is(userId));
+      query.fields().include("title", "amount", "date", "category");
+
+      BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class);
+      List<CategoryUpdate> batch = new ArrayList<>();
+      int updated = 0;
+
+      try (Stream<Entry> entries = mongoTemplate.stream(query, Entry.class)) {
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+          Entry entry = iterator.next();
+          if (changedKeywords != null && entry.getCategory() != null && !changedKeywords.containsAny(entry.getTitle())) {
+            continue;
+          }
+
+          String category = classifier.categorize(entry.getTitle(), entry.getAmount());
+          if (category.equals(entry.getCategory())) {
+            continue;
+          }
+
+          // Only an entry that still exists with the category it was read with is updated
+          bulkOperations.updateOne(Query.query(Criteria.where("_id").is(entry.getId())
+              .and("category").is(entry.getCategory())), Update.update("category", category));
+          batch.add(new CategoryUpdate(entry, category));
+          if (batch.size() == batchSize) {
+            updated += write(userId, bulkOperations, batch);
+            bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class);
+            batch = new ArrayList<>();
+          }
+        }
+      }
+      if (!batch.isEmpty()) {
+        updated += write(userId, bulkOperations, batch);
+      }
+
+      log.info("Updated the category of {} entries of user {}", updated, userId);
+    } catch (RuntimeException e) {
+      log.error("Categorizing the entries of user " + userId + " failed", e);
+    } finally {
+      runningUserId = null;
+    }
+  }
+
+  /**
+   * Write a batch of category updates and move the updated entries between
+   * the rollups of the categories. An entry deleted or categorized again
+   * after it was read is not updated and not moved.
+   *
+   * The batch is written under the user's build lock, so no delete runs at
+   * the same time and the entries that were updated are known exactly: an
+   * entry whose update did not match has been deleted before the write, and
+   * any other entry of the batch has the new category afterwards.
+   *
+   * @param userId
+   * @param bulkOperations
+   * @param batch
+   * @return number of entries updated
+   */
+  private int write(String userId, BulkOperations bulkOperations, List<CategoryUpdate> batch) {
+    Lock lock = ledgerLocks.buildLock(userId);
+    lock.lock();
+    try {
+      int matched = bulkOperations.execute().getMatchedCount();
+      List<CategoryUpdate> updates = matched == batch.size() ? batch : findUpdated(batch);
+
+      RollupChanges rollupChanges = new RollupChanges(userId);
+      for (CategoryUpdate update : updates) {
+        Entry entry = update.entry();
+        // The rollups move the entry from the old category to the new one
+        if (entry.getCategory() != null) {
+          rollupChanges.remove(entry.getDate(), entry.getCategory(), entry.getAmount());
+        }
+        rollupChanges.add(entry.getDate(), update.category(), entry.getAmount());
+      }
+      monthlyRollupService.apply(rollupChanges);
+      return updates.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Find the updates of the batch that matched an entry, by reading the
+   * categories the entries have now
+   *
+   * @param batch
+   * @return updates whose entry has the new category
+   */
+  private List<CategoryUpdate> findUpdated(List<CategoryUpdate> batch) {
+    List<String> ids = new ArrayList<>(batch.size());
+    for (CategoryUpdate update : batch) {
+      ids.add(update.entry().getId());
+    }
+    Query query = new Query(Criteria.where("_id").in(ids));
+    query.fields().include("category");
+
+    Map<String, String> categories = new HashMap<>();
+    for (Entry entry : mongoTemplate.find(query, Entry.class)) {
+      categories.put(entry.getId(), entry.getCategory());
+    }
+
+    List<CategoryUpdate> updated = new ArrayList<>();
+    for (CategoryUpdate update : batch) {
+      if (update.category().equals(categories.get(update.entry().getId()))) {
+        updated.add(update);
+      }
+    }
+    return updated;
+  }
+
+  /**
+   * New category of an entry, with the entry as it was read
+   */
+  private record CategoryUpdate(Entry entry, String category) {
+  }
+
+}
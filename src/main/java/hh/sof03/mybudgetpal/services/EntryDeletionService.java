@@ -0,0 +1,60 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.util.concurrent.locks.Lock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+/**
+ * Deletes entries and takes them away from the totals built from them. The
+ * entry is removed and returned by one findAndRemove, so only the request
+ * that actually deleted it updates the totals, with the category the entry
+ * had when it was deleted.
+ */
+@Service
+public class EntryDeletionService {
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private MonthlyRollupService monthlyRollupService;
+
+  @Autowired
+  private MerchantSketchService merchantSketchService;
+
+  @Autowired
+  private LedgerLocks ledgerLocks;
+
+  /**
+   * Delete an entry of the user
+   *
+   * @param userId
+   * @param entryId
+   * @return the deleted entry, or null if the user has no entry with the id
+   */
+  public Entry delete(String userId, String entryId) {
+    Query query = new Query(Criteria.where("_id").is(entryId).and("user_id").is(userId));
+
+    Lock lock = ledgerLocks.entryWriteLock(userId);
+    lock.lock();
+    try {
+      Entry entry = mongoTemplate.findAndRemove(query, Entry.class);
+      if (entry == null) {
+        // Deleted by another request, which has already updated the totals
+        return null;
+      }
+      monthlyRollupService.removeEntry(entry);
+      merchantSketchService.invalidate(userId);
+      return entry;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+}
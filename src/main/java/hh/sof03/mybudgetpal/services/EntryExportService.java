@@ -0,0 +1,218 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryListItem;
+
+/**
+ * Writes all entries of a user as NDJSON or CSV, oldest first. The entries
+ * are read from a Mongo cursor one batch at a time and written through a
+ * fixed-size buffer, so the memory used does not depend on the number of
+ * entries.
+ */
+@Service
+public class EntryExportService {
+
+  /**
+   * Format of an export
+   */
+  public enum Format {
+    NDJSON("application/x-ndjson"), CSV("text/csv");
+
+    private final String contentType;
+
+    Format(String contentType) {
+      this.contentType = contentType;
+    }
+
+    public String getContentType() {
+      return contentType;
+    }
+
+    public String getExtension() {
+      return name().toLowerCase();
+    }
+
+    /**
+     * @param value ndjson or csv
+     * @return format or null if the value is not one of them
+     */
+    public static Format fromString(String value) {
+      for (Format format : values()) {
+        if (format.name().equalsIgnoreCase(value)) {
+          return format;
+        }
+      }
+      return null;
+    }
+  }
+
+  private static final String CSV_HEADER = "id,date,amount,title,referenceId,bankName,category";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${app.export.bufferSize:65536}")
+  private int bufferSize;
+
+  @Value("${app.export.cursorBatchSize:1000}")
+  private int cursorBatchSize;
+
+  /**
+   * Write the user's entries to the stream. The stream is flushed but not
+   * closed.
+   *
+   * @param userId
+   * @param from first date included, null for no lower limit
+   * @param to last date included, null for no upper limit
+   * @param format
+   * @param out
+   * @return number of entries written
+   * @throws IOException if writing fails, for example when the client disconnects
+   */
+  public long export(String userId, LocalDate from, LocalDate to, Format format, OutputStream out)
+      throws IOException {
+    Criteria criteria = Criteria.where("user_id").is(userId);
+    if (from != null && to != null) {
+      criteria = criteria.and("date").gte(from).lte(to);
+    } else if (from != null) {
+      criteria = criteria.and("date").gte(from);
+    } else if (to != null) {
+      criteria = criteria.and("date").lte(to);
+    }
+    Query query = new Query(criteria);
+    // The (user_id, date, _id) index gives the entries in this order without sorting them in memory
+    query.with(Sort.by(Sort.Direction.ASC, "date", "_id"));
+    query.fields().exclude("user_id", "_class");
+    query.cursorBatchSize(cursorBatchSize);
+
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+    long written = 0;
+    try (Stream<EntryListItem> entries = mongoTemplate.stream(query, EntryListItem.class,
+        mongoTemplate.getCollectionName(Entry.class))) {
+      Iterator<EntryListItem> iterator = entries.iterator();
+      if (format == Format.CSV) {
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        while (iterator.hasNext()) {
+          writeCsv(writer, iterator.next());
+          written++;
+        }
+      } else {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+        // Each entry is on its own line instead of being separated by a space
+        generator.setRootValueSeparator(null);
+        while (iterator.hasNext()) {
+          writeJson(generator, iterator.next());
+          generator.writeRaw('\n');
+          written++;
+        }
+        generator.close();
+      }
+    }
+    writer.flush();
+    return written;
+  }
+
+  private static void writeJson(JsonGenerator generator, EntryListItem entry) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("id", entry.id());
+    generator.writeStringField("date", entry.date() == null ? null : entry.date().toString());
+    generator.writeFieldName("amount");
+    generator.writeNumber(entry.amount());
+    generator.writeStringField("title", entry.title());
+    generator.writeStringField("referenceId", entry.referenceId());
+    generator.writeStringField("bankName", entry.bankName());
+    generator.writeStringField("category", entry.category());
+    generator.writeEndObject();
+  }
+
+  private static void writeCsv(Writer writer, EntryListItem entry) throws IOException {
+    writer.write(entry.id());
+    writer.write(',');
+    if (entry.date() != null) {
+      writer.write(entry.date().toString());
+    }
+    writer.write(',');
+    if (entry.amount() != null) {
+      writer.write(entry.amount().toPlainString());
+    }
+    writer.write(',');
+    writeCsvField(writer, entry.title());
+    writer.write(',');
+    writeCsvField(writer, entry.referenceId());
+    writer.write(',');
+    writeCsvField(writer, entry.bankName());
+    writer.write(',');
+    writeCsvField(writer, entry.category());
+    writer.write("\r\n");
+  }
+
+  /**
+   * Write the value quoted if it has a comma, quote or line break, as in
+   * RFC 4180. Titles can be written by others, like the message of an
+   * incoming transfer, so a value that a spreadsheet would read as a formula
+   * is prefixed with ' and quoted.
+   *
+   * @param writer
+   * @param value
+   * @throws IOException
+   */
+  static void writeCsvField(Writer writer, String value) throws IOException {
+    if (value == null) {
+      return;
+    }
+    boolean formula = !value.isEmpty() && isFormulaStart(value.charAt(0));
+    boolean quoted = formula;
+    for (int i = 0; i < value.length() && !quoted; i++) {
+      char c = value.charAt(i);
+      quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quoted) {
+      writer.write(value);
+      return;
+    }
+    writer.write('"');
+    if (formula) {
+      writer.write('\'');
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"') {
+        writer.write('"');
+      }
+      writer.write(c);
+    }
+    writer.write('"');
+  }
+
+  private static boolean isFormulaStart(char c) {
+    return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+  }
+
+}
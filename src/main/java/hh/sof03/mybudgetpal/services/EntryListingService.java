@@ -0,0 +1,161 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryListItem;
+
+/**
+ * Lists a user's entries a page at a time, newest first. Pages are read with
+ * keyset pagination on (date, _id) using the (user_id, date, _id) index, so
+ * a page costs the same however deep it is and however many entries the
+ * user has. The cursor is the date and id of the last entry of the previous
+ * page, encoded so clients treat it as opaque.
+ */
+@Service
+public class EntryListingService {
+
+  public static final int MAX_LIMIT = 500;
+
+  // Fields that can be selected, by their name in the response, with their name in the database
+  private static final Map<String, String> DOCUMENT_FIELDS = Map.of(
+      "id", "_id",
+      "date", "date",
+      "amount", "amount",
+      "title", "title",
+      "referenceId", "reference_id",
+      "bankName", "bank_name",
+      "category", "category");
+
+  private static final Map<String, Function<EntryListItem, Object>> FIELD_VALUES = Map.of(
+      "id", EntryListItem::id,
+      "date", EntryListItem::date,
+      "amount", EntryListItem::amount,
+      "title", EntryListItem::title,
+      "referenceId", EntryListItem::referenceId,
+      "bankName", EntryListItem::bankName,
+      "category", EntryListItem::category);
+
+  private static final List<String> ALL_FIELDS = List.of("id", "date", "amount", "title", "referenceId",
+      "bankName", "category");
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /**
+   * Get a page of the user's entries, newest first
+   *
+   * @param userId
+   * @param from first date included, null for no lower limit
+   * @param to last date included, null for no upper limit
+   * @param limit entries on the page, 1 to MAX_LIMIT
+   * @param cursor nextCursor of the previous page, null for the first page
+   * @param fields comma separated fields to return, null for all
+   * @return page
+   * @throws IllegalArgumentException if the limit, cursor or fields are not valid
+   */
+  public EntryPage getPage(String userId, LocalDate from, LocalDate to, int limit, String cursor, String fields) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+    }
+    List<String> selectedFields = parseFields(fields);
+
+    List<Criteria> criteria = new ArrayList<>();
+    criteria.add(Criteria.where("user_id").is(userId));
+    if (from != null) {
+      criteria.add(Criteria.where("date").gte(from));
+    }
+    if (to != null) {
+      criteria.add(Criteria.where("date").lte(to));
+    }
+    if (cursor != null) {
+      Object[] position = decodeCursor(cursor);
+      criteria.add(new Criteria().orOperator(
+          Criteria.where("date").lt(position[0]),
+          Criteria.where("date").is(position[0]).and("_id").lt(position[1])));
+    }
+
+    Query query = new Query(new Criteria().andOperator(criteria));
+    query.with(Sort.by(Sort.Direction.DESC, "date", "_id"));
+    // One more than the page tells if there is a next page
+    query.limit(limit + 1);
+    // The date and id are always read for the cursor
+    query.fields().include("_id", "date");
+    for (String field : selectedFields) {
+      query.fields().include(DOCUMENT_FIELDS.get(field));
+    }
+
+    List<EntryListItem> items = mongoTemplate.find(query, EntryListItem.class,
+        mongoTemplate.getCollectionName(Entry.class));
+
+    String nextCursor = null;
+    if (items.size() > limit) {
+      items = items.subList(0, limit);
+      EntryListItem last = items.get(limit - 1);
+      nextCursor = encodeCursor(last.date(), last.id());
+    }
+
+    List<Map<String, Object>> entries = new ArrayList<>(items.size());
+    for (EntryListItem item : items) {
+      Map<String, Object> entry = new LinkedHashMap<>();
+      for (String field : selectedFields) {
+        entry.put(field, FIELD_VALUES.get(field).apply(item));
+      }
+      entries.add(entry);
+    }
+    return new EntryPage(entries, nextCursor);
+  }
+
+  private static List<String> parseFields(String fields) {
+    if (fields == null || fields.isBlank()) {
+      return ALL_FIELDS;
+    }
+    Set<String> selected = new LinkedHashSet<>();
+    for (String field : fields.split(",")) {
+      field = field.trim();
+      if (!DOCUMENT_FIELDS.containsKey(field)) {
+        throw new IllegalArgumentException("Unknown field " + field);
+      }
+      selected.add(field);
+    }
+    return new ArrayList<>(selected);
+  }
+
+  private static String encodeCursor(LocalDate date, String id) {
+    String position = date + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param cursor
+   * @return date and ObjectId of the last entry of the previous page
+   */
+  private static Object[] decodeCursor(String cursor) {
+    try {
+      String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = position.indexOf('|');
+      return new Object[] { LocalDate.parse(position.substring(0, separator)),
+          new ObjectId(position.substring(separator + 1)) };
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+
+}
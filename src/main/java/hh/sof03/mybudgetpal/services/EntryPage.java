@@ -0,0 +1,32 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a user's entries
+ */
+public class EntryPage {
+
+  private final List<Map<String, Object>> entries;
+
+  private final String nextCursor;
+
+  /**
+   * @param entries entries with the requested fields
+   * @param nextCursor cursor of the next page, null on the last page
+   */
+  public EntryPage(List<Map<String, Object>> entries, String nextCursor) {
+    this.entries = entries;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Map<String, Object>> getEntries() {
+    return entries;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+}
@@ -0,0 +1,118 @@
+package hh.sof03.mybudgetpal.services;
+
+/**
+ * Progress of importing one statement file. The counters are written by the
+ * importing thread only and may be read by other threads while it runs.
+ */
+public class FileImportStatus {
+
+  public enum Status {
+    PENDING,
+    PROCESSING,
+    COMPLETED,
+    ALREADY_IMPORTED,
+    FAILED
+  }
+
+  private final String fileName;
+
+  private volatile Status status = Status.PENDING;
+
+  private volatile String bankName;
+
+  private volatile int rowsParsed = 0;
+
+  private volatile int inserted = 0;
+
+  private volatile int skippedDuplicate = 0;
+
+  private volatile int skippedExcluded = 0;
+
+  private volatile String error;
+
+  private volatile String sha256;
+
+  public FileImportStatus(String fileName) {
+    this.fileName = fileName;
+  }
+
+  public String getFileName() {
+    return fileName;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+  }
+
+  public String getBankName() {
+    return bankName;
+  }
+
+  public void setBankName(String bankName) {
+    this.bankName = bankName;
+  }
+
+  public int getRowsParsed() {
+    return rowsParsed;
+  }
+
+  public void setRowsParsed(int rowsParsed) {
+    this.rowsParsed = rowsParsed;
+  }
+
+  public int getInserted() {
+    return inserted;
+  }
+
+  public void setInserted(int inserted) {
+    this.inserted = inserted;
+  }
+
+  public int getSkippedDuplicate() {
+    return skippedDuplicate;
+  }
+
+  public void setSkippedDuplicate(int skippedDuplicate) {
+    this.skippedDuplicate = skippedDuplicate;
+  }
+
+  public int getSkippedExcluded() {
+    return skippedExcluded;
+  }
+
+  public void setSkippedExcluded(int skippedExcluded) {
+    this.skippedExcluded = skippedExcluded;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+  /**
+   * Mark the import failed. Rows inserted before the failure stay in the
+   * database, and the error says how many there are.
+   *
+   * @param error
+   */
+  public void fail(String error) {
+    this.error = inserted > 0 ? error + " (" + inserted + " rows imported before the error were kept)" : error;
+    this.status = Status.FAILED;
+  }
+
+  public String getSha256() {
+    return sha256;
+  }
+
+  public void setSha256(String sha256) {
+    this.sha256 = sha256;
+  }
+
+}
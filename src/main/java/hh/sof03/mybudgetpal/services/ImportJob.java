@@ -0,0 +1,92 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Statement import running in the background. A completed job may still
+ * contain failed files; see the status of each file.
+ */
+public class ImportJob {
+
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    COMPLETED
+  }
+
+  private final String id;
+
+  private final String userId;
+
+  private final LocalDateTime createdAt;
+
+  private final List<FileImportStatus> files;
+
+  private volatile Status status = Status.QUEUED;
+
+  private volatile LocalDateTime finishedAt;
+
+  public ImportJob(String id, String userId, List<FileImportStatus> files) {
+    this.id = id;
+    this.userId = userId;
+    this.files = files;
+    this.createdAt = LocalDateTime.now();
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  @JsonIgnore
+  public String getUserId() {
+    return userId;
+  }
+
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  public LocalDateTime getFinishedAt() {
+    return finishedAt;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public void setStatus(Status status) {
+    this.status = status;
+    if (status == Status.COMPLETED) {
+      this.finishedAt = LocalDateTime.now();
+    }
+  }
+
+  public List<FileImportStatus> getFiles() {
+    return files;
+  }
+
+  public int getRowsParsed() {
+    return files.stream().mapToInt(FileImportStatus::getRowsParsed).sum();
+  }
+
+  public int getInserted() {
+    return files.stream().mapToInt(FileImportStatus::getInserted).sum();
+  }
+
+  public int getSkippedDuplicate() {
+    return files.stream().mapToInt(FileImportStatus::getSkippedDuplicate).sum();
+  }
+
+  public int getSkippedExcluded() {
+    return files.stream().mapToInt(FileImportStatus::getSkippedExcluded).sum();
+  }
+
+  @JsonIgnore
+  public boolean isFinished() {
+    return status == Status.COMPLETED;
+  }
+
+}
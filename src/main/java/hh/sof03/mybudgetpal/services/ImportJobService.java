@@ -0,0 +1,155 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import hh.sof03.mybudgetpal.domain.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs statement imports in the background. Uploaded files are copied to
+ * temporary files so the request can return right away, and the jobs are
+ * processed by a bounded thread pool.
+ */
+@Service
+public class ImportJobService {
+
+  private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+  @Autowired
+  private MultiFileImportService multiFileImportService;
+
+  @Value("${app.import.jobThreads:4}")
+  private int jobThreads;
+
+  @Value("${app.import.jobQueueCapacity:100}")
+  private int jobQueueCapacity;
+
+  @Value("${app.import.jobRetentionMinutes:60}")
+  private int jobRetentionMinutes;
+
+  private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+  private ThreadPoolTaskExecutor executor;
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(jobThreads);
+    executor.setMaxPoolSize(jobThreads);
+    executor.setQueueCapacity(jobQueueCapacity);
+    executor.setThreadNamePrefix("import-job-");
+    executor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Copy the files to temporary storage and queue them for import
+   *
+   * @param files
+   * @param user
+   * @param force if true, files the user has already imported are imported again
+   * @return queued job
+   * @throws IOException if the files could not be stored
+   * @throws org.springframework.core.task.TaskRejectedException if the queue is full
+   */
+  public ImportJob submit(MultipartFile[] files, User user, boolean force) throws IOException {
+    removeExpiredJobs();
+
+    List<FileImportStatus> statuses = new ArrayList<>();
+    List<Path> spooledFiles = new ArrayList<>();
+    try {
+      for (MultipartFile file : files) {
+        Path spooledFile = Files.createTempFile("statement-import-", ".csv");
+        spooledFiles.add(spooledFile);
+        try (InputStream input = file.getInputStream()) {
+          Files.copy(input, spooledFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        statuses.add(new FileImportStatus(file.getOriginalFilename()));
+      }
+
+      ImportJob job = new ImportJob(UUID.randomUUID().toString(), user.getId(), statuses);
+      jobs.put(job.getId(), job);
+      try {
+        executor.execute(() -> run(job, spooledFiles, user, force));
+      } catch (RuntimeException e) {
+        jobs.remove(job.getId());
+        throw e;
+      }
+      return job;
+    } catch (IOException | RuntimeException e) {
+      deleteFiles(spooledFiles);
+      throw e;
+    }
+  }
+
+  /**
+   * Get a job of the user
+   *
+   * @param id
+   * @param user
+   * @return job or null if the user has no job with the id
+   */
+  public ImportJob getJob(String id, User user) {
+    ImportJob job = jobs.get(id);
+    if (job == null || !job.getUserId().equals(user.getId())) {
+      return null;
+    }
+    return job;
+  }
+
+  private void run(ImportJob job, List<Path> spooledFiles, User user, boolean force) {
+    job.setStatus(ImportJob.Status.RUNNING);
+
+    try {
+      List<StatementSource> sources = new ArrayList<>();
+      for (int i = 0; i < spooledFiles.size(); i++) {
+        sources.add(StatementSource.of(spooledFiles.get(i), job.getFiles().get(i).getFileName()));
+      }
+      multiFileImportService.importFiles(sources, job.getFiles(), user, force);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      deleteFiles(spooledFiles);
+      job.setStatus(ImportJob.Status.COMPLETED);
+    }
+  }
+
+  private void removeExpiredJobs() {
+    LocalDateTime expiry = LocalDateTime.now().minusMinutes(jobRetentionMinutes);
+    jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(expiry));
+  }
+
+  private void deleteFiles(List<Path> files) {
+    for (Path file : files) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        log.warn("Could not delete temporary file " + file, e);
+      }
+    }
+  }
+
+}
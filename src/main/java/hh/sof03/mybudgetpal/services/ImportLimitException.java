@@ -0,0 +1,17 @@
+package hh.sof03.mybudgetpal.services;
+
+/**
+ * Thrown when a statement import goes over one of the configured row limits
+ */
+public class ImportLimitException extends RuntimeException {
+
+  /**
+   * ImportLimitException
+   *
+   * @param message
+   */
+  public ImportLimitException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,128 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.ImportLog;
+import hh.sof03.mybudgetpal.domain.ImportLogRepository;
+
+/**
+ * Keeps the SHA-256 digests of the statement files each user has imported,
+ * so that an identical file can be recognized without parsing it again.
+ * The records of a user are dropped when the user's entries or excluded
+ * keywords change, because an identical file is then no longer known to
+ * add nothing.
+ */
+@Service
+public class ImportLogService {
+
+  @Autowired
+  private ImportLogRepository importLogRepository;
+
+  /**
+   * Check if the user has already imported a file with the digest
+   *
+   * @param userId
+   * @param sha256
+   * @return true if the file has been imported
+   */
+  public boolean isImported(String userId, String sha256) {
+    return importLogRepository.existsByUserIdAndSha256(userId, sha256);
+  }
+
+  /**
+   * Record a successfully imported file
+   *
+   * @param userId
+   * @param status status of the completed import, including the digest
+   * @return false if the file had already been recorded for the user
+   */
+  public boolean record(String userId, FileImportStatus status) {
+    try {
+      importLogRepository.insert(new ImportLog(userId, status.getSha256(), status.getFileName(),
+          status.getBankName(), status.getRowsParsed(), status.getInserted()));
+      return true;
+    } catch (DuplicateKeyException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Get the imported files of the user, newest first
+   *
+   * @param userId
+   * @return List of imported files
+   */
+  public List<ImportLog> getHistory(String userId) {
+    return importLogRepository.findAllByUserIdOrderByImportedAtDesc(userId);
+  }
+
+  /**
+   * Forget the files the user has imported, so importing one of them again
+   * parses it and inserts the rows that are not in the database. Call this
+   * after entries have been deleted or the excluded keywords have changed,
+   * because then a file imported before can have rows to insert again.
+   *
+   * @param userId
+   */
+  public void forget(String userId) {
+    importLogRepository.deleteByUserId(userId);
+  }
+
+  /**
+   * @return new SHA-256 message digest
+   */
+  public static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Compute the SHA-256 digest of the content
+   *
+   * @param input read to the end, not closed by this method
+   * @return digest as a hex string
+   */
+  public static String sha256(InputStream input) throws IOException {
+    MessageDigest digest = newDigest();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      digest.update(buffer, 0, read);
+    }
+    return toHex(digest);
+  }
+
+  /**
+   * Compute the SHA-256 digest of the content
+   *
+   * @param content read from its position to its limit without moving the position
+   * @return digest as a hex string
+   */
+  public static String sha256(ByteBuffer content) {
+    MessageDigest digest = newDigest();
+    digest.update(content.duplicate());
+    return toHex(digest);
+  }
+
+  /**
+   * @param digest
+   * @return digest as a hex string
+   */
+  public static String toHex(MessageDigest digest) {
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+}
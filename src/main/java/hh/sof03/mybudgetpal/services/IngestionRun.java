@@ -0,0 +1,135 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress and throughput of one scan of the ingestion directory. The
+ * counters are updated by the ingestion threads while the scan runs.
+ */
+public class IngestionRun {
+
+  public enum Status {
+    RUNNING,
+    COMPLETED
+  }
+
+  private final LocalDateTime startedAt = LocalDateTime.now();
+
+  private final long startNanos = System.nanoTime();
+
+  private volatile Status status = Status.RUNNING;
+
+  private volatile LocalDateTime finishedAt;
+
+  private volatile long finishedNanos;
+
+  private final AtomicInteger files = new AtomicInteger();
+
+  private final AtomicInteger completedFiles = new AtomicInteger();
+
+  private final AtomicInteger alreadyImportedFiles = new AtomicInteger();
+
+  private final AtomicLong rows = new AtomicLong();
+
+  private final AtomicLong inserted = new AtomicLong();
+
+  private final AtomicLong bytes = new AtomicLong();
+
+  private final List<String> unknownUsers = new CopyOnWriteArrayList<>();
+
+  private final List<FileImportStatus> failedFiles = new CopyOnWriteArrayList<>();
+
+  /**
+   * Add the result of one imported file
+   *
+   * @param status
+   * @param size file size in bytes
+   */
+  public void addFile(FileImportStatus status, long size) {
+    rows.addAndGet(status.getRowsParsed());
+    inserted.addAndGet(status.getInserted());
+    bytes.addAndGet(size);
+
+    if (status.getStatus() == FileImportStatus.Status.COMPLETED) {
+      completedFiles.incrementAndGet();
+    } else if (status.getStatus() == FileImportStatus.Status.ALREADY_IMPORTED) {
+      alreadyImportedFiles.incrementAndGet();
+    } else {
+      failedFiles.add(status);
+    }
+  }
+
+  public void addUnknownUser(String username) {
+    unknownUsers.add(username);
+  }
+
+  public void fileQueued() {
+    files.incrementAndGet();
+  }
+
+  public void finish() {
+    finishedNanos = System.nanoTime();
+    finishedAt = LocalDateTime.now();
+    status = Status.COMPLETED;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public LocalDateTime getStartedAt() {
+    return startedAt;
+  }
+
+  public LocalDateTime getFinishedAt() {
+    return finishedAt;
+  }
+
+  public int getFiles() {
+    return files.get();
+  }
+
+  public int getCompletedFiles() {
+    return completedFiles.get();
+  }
+
+  public int getAlreadyImportedFiles() {
+    return alreadyImportedFiles.get();
+  }
+
+  public long getRows() {
+    return rows.get();
+  }
+
+  public long getInserted() {
+    return inserted.get();
+  }
+
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  public List<String> getUnknownUsers() {
+    return unknownUsers;
+  }
+
+  public List<FileImportStatus> getFailedFiles() {
+    return failedFiles;
+  }
+
+  public long getElapsedMillis() {
+    long end = status == Status.COMPLETED ? finishedNanos : System.nanoTime();
+    return Duration.ofNanos(end - startNanos).toMillis();
+  }
+
+  public long getRowsPerSecond() {
+    long elapsed = getElapsedMillis();
+    return elapsed == 0 ? 0 : rows.get() * 1000 / elapsed;
+  }
+
+}
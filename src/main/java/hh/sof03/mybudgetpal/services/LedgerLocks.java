@@ -0,0 +1,52 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-user locks that keep the totals built from a user's entries, like the
+ * monthly rollups, consistent with writes of the entries.
+ *
+ * A write of entries holds the user's entry write lock from the write until
+ * the totals have been updated with it. Any number of writes can run at the
+ * same time. A build of the totals holds the build lock while it reads the
+ * entries and stores the result, which waits for the running writes and
+ * keeps new ones from starting. So every write is either read by the build,
+ * or added to the totals after the build has stored them, never both or
+ * neither. A write that must know exactly which entries it changed, like
+ * categorizing entries again, holds the build lock too, so no other write
+ * changes the same entries while it runs.
+ */
+@Service
+public class LedgerLocks {
+
+  private final Map<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+
+  /**
+   * @param userId
+   * @return lock to hold while the user's entries are written and the totals
+   *         updated with them
+   */
+  public Lock entryWriteLock(String userId) {
+    return lock(userId).readLock();
+  }
+
+  /**
+   * @param userId
+   * @return lock to hold while the user's totals are built from the entries,
+   *         or while no other write of the user's entries may run
+   */
+  public Lock buildLock(String userId) {
+    return lock(userId).writeLock();
+  }
+
+  private ReentrantReadWriteLock lock(String userId) {
+    // Fair, so a build is not kept waiting by a steady stream of imported batches
+    return locks.computeIfAbsent(userId, id -> new ReentrantReadWriteLock(true));
+  }
+
+}
@@ -0,0 +1,180 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryStatsView;
+import hh.sof03.mybudgetpal.domain.MerchantSketch;
+import hh.sof03.mybudgetpal.domain.MerchantSketchRepository;
+import hh.sof03.mybudgetpal.statistics.LedgerAggregator;
+import hh.sof03.mybudgetpal.statistics.SpaceSavingSketch;
+
+/**
+ * Keeps the merchant sketches of the users, the approximate top merchant
+ * titles by spend and by number of entries. A user's sketch is built from
+ * the entries the first time it is needed and updated as entries are
+ * imported. A sketch cannot take a deleted entry away, so deleting an entry
+ * drops the user's sketch and the next request builds it again.
+ *
+ * Imports add their batches under the user's entry write lock from
+ * LedgerLocks and a build holds the build lock, so a batch is counted either
+ * by the build or by the import, never by both.
+ */
+@Service
+public class MerchantSketchService {
+
+  private static final Logger log = LoggerFactory.getLogger(MerchantSketchService.class);
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private MerchantSketchRepository merchantSketchRepository;
+
+  @Autowired
+  private LedgerLocks ledgerLocks;
+
+  @Value("${app.statistics.merchantSketchSize:200}")
+  private int sketchSize;
+
+  @Value("${app.statistics.cursorBatchSize:1000}")
+  private int cursorBatchSize;
+
+  private final Map<String, Object> userLocks = new ConcurrentHashMap<>();
+
+  /**
+   * Count newly inserted entries in the user's sketch. The caller holds the
+   * user's entry write lock from before the insert. Nothing is done if the
+   * sketch has not been built yet, because building it counts the entries
+   * anyway.
+   *
+   * @param userId
+   * @param entries
+   */
+  public void addEntries(String userId, List<Entry> entries) {
+    synchronized (userLock(userId)) {
+      MerchantSketch sketch = merchantSketchRepository.findById(userId).orElse(null);
+      if (sketch == null) {
+        return;
+      }
+
+      SpaceSavingSketch bySpend = new SpaceSavingSketch(sketch.getCapacity(), sketch.getBySpend());
+      SpaceSavingSketch byCount = new SpaceSavingSketch(sketch.getCapacity(), sketch.getByCount());
+      for (Entry entry : entries) {
+        add(bySpend, byCount, entry.getTitle(), LedgerAggregator.toCents(entry.getAmount()));
+      }
+      save(sketch, bySpend, byCount);
+    }
+  }
+
+  /**
+   * Drop the user's sketch after entries have been deleted, so it is built
+   * again from the remaining entries. The caller holds the user's entry
+   * write lock from before the delete.
+   *
+   * @param userId
+   */
+  public void invalidate(String userId) {
+    // Under the same monitor as addEntries, so a running batch does not save the old sketch back
+    synchronized (userLock(userId)) {
+      merchantSketchRepository.deleteById(userId);
+    }
+  }
+
+  /**
+   * Get the user's sketch, building it from the entries if needed. The counts
+   * are sorted from the largest, so the top n are the first n of each list.
+   *
+   * @param userId
+   * @return sketch
+   */
+  public MerchantSketch getSketch(String userId) {
+    MerchantSketch sketch = merchantSketchRepository.findById(userId).orElse(null);
+    if (sketch != null) {
+      return sketch;
+    }
+
+    Lock buildLock = ledgerLocks.buildLock(userId);
+    buildLock.lock();
+    try {
+      sketch = merchantSketchRepository.findById(userId).orElse(null);
+      if (sketch == null) {
+        sketch = build(userId);
+      }
+      return sketch;
+    } finally {
+      buildLock.unlock();
+    }
+  }
+
+  public int getSketchSize() {
+    return sketchSize;
+  }
+
+  private MerchantSketch build(String userId) {
+    SpaceSavingSketch bySpend = new SpaceSavingSketch(sketchSize);
+    SpaceSavingSketch byCount = new SpaceSavingSketch(sketchSize);
+
+    Query query = new Query(Criteria.where("user_id").is(userId));
+    query.fields().include("title", "amount");
+    query.cursorBatchSize(cursorBatchSize);
+
+    long entries = 0;
+    try (Stream<EntryStatsView> stream = mongoTemplate.stream(query, EntryStatsView.class,
+        mongoTemplate.getCollectionName(Entry.class))) {
+      Iterator<EntryStatsView> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        EntryStatsView entry = iterator.next();
+        add(bySpend, byCount, entry.title(), LedgerAggregator.toCents(entry.amount()));
+        entries++;
+      }
+    }
+
+    MerchantSketch sketch = new MerchantSketch(userId, sketchSize);
+    save(sketch, bySpend, byCount);
+    log.info("Built the merchant sketch of user {} from {} entries", userId, entries);
+    return sketch;
+  }
+
+  /**
+   * @param bySpend
+   * @param byCount
+   * @param title
+   * @param cents amount of the entry, only expenses count as spend
+   */
+  private static void add(SpaceSavingSketch bySpend, SpaceSavingSketch byCount, String title, long cents) {
+    if (title == null || title.isBlank()) {
+      return;
+    }
+    title = title.trim();
+    byCount.add(title, 1);
+    bySpend.add(title, -cents);
+  }
+
+  private void save(MerchantSketch sketch, SpaceSavingSketch bySpend, SpaceSavingSketch byCount) {
+    sketch.setBySpend(bySpend.toCounts());
+    sketch.setByCount(byCount.toCounts());
+    sketch.setUpdatedAt(LocalDateTime.now());
+    merchantSketchRepository.save(sketch);
+  }
+
+  private Object userLock(String userId) {
+    return userLocks.computeIfAbsent(userId, id -> new Object());
+  }
+
+}
@@ -0,0 +1,451 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryStatsView;
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+import hh.sof03.mybudgetpal.domain.MonthlyRollupRepository;
+import hh.sof03.mybudgetpal.domain.MonthlyRollupStatus;
+import hh.sof03.mybudgetpal.domain.MonthlyRollupStatusRepository;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.KeywordService;
+import hh.sof03.mybudgetpal.statistics.EntryChunkTotals;
+import hh.sof03.mybudgetpal.statistics.LedgerAggregator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the monthly_rollups collection, the totals of each user per month and
+ * category, up to date as entries are imported, deleted and categorized
+ * again. The statistics are read from the rollups instead of the entries.
+ *
+ * The rollups of a user are built from the entries the first time they are
+ * needed, and only users whose rollups have been built are updated
+ * incrementally. Entry writes and the rollup updates that follow them hold
+ * the user's entry write lock from LedgerLocks, and building the rollups
+ * holds the build lock, so a build neither misses nor counts twice an entry
+ * written while it runs. A delete or category change is counted only if it
+ * actually changed an entry, so two requests racing for the same entry
+ * update the rollups once. The updates are still not atomic with the entry
+ * writes, so a crash between the two can leave the rollups off; verify
+ * reports such drift and rebuild fixes it.
+ */
+@Service
+public class MonthlyRollupService {
+
+  private static final Logger log = LoggerFactory.getLogger(MonthlyRollupService.class);
+
+  // Month range limits that include every month
+  private static final String FIRST_MONTH = "0000-01";
+
+  private static final String LAST_MONTH = "9999-12";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private MonthlyRollupRepository monthlyRollupRepository;
+
+  @Autowired
+  private MonthlyRollupStatusRepository monthlyRollupStatusRepository;
+
+  @Autowired
+  private KeywordService keywordService;
+
+  @Autowired
+  private StatisticsCache statisticsCache;
+
+  @Autowired
+  private LedgerLocks ledgerLocks;
+
+  @Value("${app.statistics.cursorBatchSize:1000}")
+  private int cursorBatchSize;
+
+  @Value("${app.statistics.parallelThreshold:100000}")
+  private long parallelThreshold;
+
+  @Value("${app.statistics.parallelism:0}")
+  private int parallelism;
+
+  private ForkJoinPool pool;
+
+  private final Set<String> builtUsers = ConcurrentHashMap.newKeySet();
+
+  @PostConstruct
+  public void init() {
+    pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Count newly inserted entries in the rollups. The caller holds the user's
+   * entry write lock from before the insert.
+   *
+   * @param userId
+   * @param entries
+   */
+  public void addEntries(String userId, List<Entry> entries) {
+    RollupChanges changes = new RollupChanges(userId);
+    for (Entry entry : entries) {
+      changes.add(entry.getDate(), entry.getCategory(), entry.getAmount());
+    }
+    apply(changes);
+  }
+
+  /**
+   * Take a deleted entry away from the rollups. The caller holds the user's
+   * entry write lock from before the delete.
+   *
+   * @param entry
+   */
+  public void removeEntry(Entry entry) {
+    if (entry.getCategory() == null) {
+      // Entries without a category were never counted in the rollups
+      return;
+    }
+    RollupChanges changes = new RollupChanges(entry.getUserId());
+    changes.remove(entry.getDate(), entry.getCategory(), entry.getAmount());
+    apply(changes);
+  }
+
+  /**
+   * Increment the rollups by the changes with upserts. The caller holds the
+   * user's entry write lock from before the entries were written. Nothing is
+   * done if the user's rollups have not been built yet: a build cannot be
+   * running while the lock is held, so the build that comes later reads the
+   * entries as they are now.
+   *
+   * @param changes
+   */
+  public void apply(RollupChanges changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    if (!isBuilt(changes.getUserId())) {
+      statisticsCache.dataChanged(changes.getUserId());
+      return;
+    }
+
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, MonthlyRollup.class);
+    for (MonthlyRollup change : changes.getChanges()) {
+      Query query = new Query(Criteria.where("user_id").is(change.getUserId())
+          .and("month").is(change.getMonth())
+          .and("category").is(change.getCategory()));
+      Update update = new Update()
+          .inc("sum", change.getSum())
+          .inc("count", change.getCount())
+          .inc("income", change.getIncome())
+          .inc("expense", change.getExpense());
+      bulkOperations.upsert(query, update);
+    }
+    bulkOperations.execute();
+    // Bumped after the write, so statistics computed before it are not cached as current
+    statisticsCache.dataChanged(changes.getUserId());
+  }
+
+  /**
+   * Get the rollups of the user, building them first if needed
+   *
+   * @param userId
+   * @return rollups that have entries
+   */
+  public List<MonthlyRollup> getRollups(String userId) {
+    ensureBuilt(userId);
+    List<MonthlyRollup> rollups = new ArrayList<>(monthlyRollupRepository.findAllByUserId(userId));
+    rollups.removeIf(rollup -> rollup.getCount() == 0);
+    return rollups;
+  }
+
+  /**
+   * Get the totals of the user's entries between the dates per month and
+   * category. Whole months are read from the rollups and the first and last
+   * month, if the range covers only part of them, are totalled from the
+   * entries.
+   *
+   * @param userId
+   * @param from first date included, null for no lower limit
+   * @param to last date included, null for no upper limit
+   * @return rollups that have entries
+   */
+  public List<MonthlyRollup> getRollups(String userId, LocalDate from, LocalDate to) {
+    if (from == null && to == null) {
+      return getRollups(userId);
+    }
+    ensureBuilt(userId);
+
+    YearMonth firstMonth = from == null ? null : YearMonth.from(from);
+    YearMonth lastMonth = to == null ? null : YearMonth.from(to);
+    boolean partialFirstMonth = from != null && from.getDayOfMonth() != 1;
+    boolean partialLastMonth = to != null && !to.equals(lastMonth.atEndOfMonth());
+
+    List<MonthlyRollup> rollups = new ArrayList<>();
+    String fromMonth = firstMonth == null ? FIRST_MONTH
+        : (partialFirstMonth ? firstMonth.plusMonths(1) : firstMonth).toString();
+    String toMonth = lastMonth == null ? LAST_MONTH
+        : (partialLastMonth ? lastMonth.minusMonths(1) : lastMonth).toString();
+    if (fromMonth.compareTo(toMonth) <= 0) {
+      rollups.addAll(monthlyRollupRepository.findAllByUserIdAndMonthRange(userId, fromMonth, toMonth));
+    }
+
+    LedgerAggregator partialMonths = new LedgerAggregator();
+    if (partialFirstMonth && partialLastMonth && firstMonth.equals(lastMonth)) {
+      addEntries(partialMonths, userId, from, to);
+    } else {
+      if (partialFirstMonth) {
+        addEntries(partialMonths, userId, from, firstMonth.atEndOfMonth());
+      }
+      if (partialLastMonth) {
+        addEntries(partialMonths, userId, lastMonth.atDay(1), to);
+      }
+    }
+    rollups.addAll(partialMonths.toRollups(userId));
+
+    rollups.removeIf(rollup -> rollup.getCount() == 0);
+    return rollups;
+  }
+
+  /**
+   * Replace the rollups of the user with totals computed from the entries.
+   * Entries without a stored category get one.
+   *
+   * @param userId
+   * @return number of rollups
+   */
+  public int rebuild(String userId) {
+    Lock buildLock = ledgerLocks.buildLock(userId);
+    buildLock.lock();
+    try {
+      Map<String, MonthlyRollup> rollups = computeFromEntries(userId, true);
+
+      monthlyRollupRepository.deleteAllByUserId(userId);
+      monthlyRollupRepository.insert(rollups.values());
+      monthlyRollupStatusRepository.save(new MonthlyRollupStatus(userId));
+      builtUsers.add(userId);
+      statisticsCache.dataChanged(userId);
+
+      log.info("Rebuilt {} monthly rollups of user {}", rollups.size(), userId);
+      return rollups.size();
+    } finally {
+      buildLock.unlock();
+    }
+  }
+
+  /**
+   * Compare the stored rollups of the user to totals computed from the
+   * entries without changing anything
+   *
+   * @param userId
+   * @return rollups that differ, empty if the rollups are correct
+   */
+  public List<RollupDrift> verify(String userId) {
+    Map<String, MonthlyRollup> expected;
+    Map<String, MonthlyRollup> actual = new HashMap<>();
+    // Writes between reading the entries and the rollups would show up as drift
+    Lock buildLock = ledgerLocks.buildLock(userId);
+    buildLock.lock();
+    try {
+      expected = computeFromEntries(userId, false);
+      for (MonthlyRollup rollup : monthlyRollupRepository.findAllByUserId(userId)) {
+        actual.put(key(rollup), rollup);
+      }
+    } finally {
+      buildLock.unlock();
+    }
+
+    List<RollupDrift> drift = new ArrayList<>();
+    for (Map.Entry<String, MonthlyRollup> entry : expected.entrySet()) {
+      MonthlyRollup stored = actual.remove(entry.getKey());
+      MonthlyRollup computed = entry.getValue();
+      if (stored == null) {
+        stored = new MonthlyRollup(userId, computed.getMonth(), computed.getCategory());
+      }
+      if (!computed.hasSameTotals(stored)) {
+        drift.add(new RollupDrift(computed.getMonth(), computed.getCategory(), computed, stored));
+      }
+    }
+    for (MonthlyRollup stored : actual.values()) {
+      MonthlyRollup empty = new MonthlyRollup(userId, stored.getMonth(), stored.getCategory());
+      if (!empty.hasSameTotals(stored)) {
+        drift.add(new RollupDrift(stored.getMonth(), stored.getCategory(), empty, stored));
+      }
+    }
+    return drift;
+  }
+
+  /**
+   * Total the entries of the user per month and category. Entries without a
+   * stored category are categorized with the current keywords.
+   *
+   * @param userId
+   * @param storeCategories save the category of entries that had none
+   * @return rollups by month and category
+   */
+  private Map<String, MonthlyRollup> computeFromEntries(String userId, boolean storeCategories) {
+    Query query = new Query(Criteria.where("user_id").is(userId));
+    LedgerAggregator totals = aggregate(userId, query, storeCategories);
+
+    Map<String, MonthlyRollup> rollups = new HashMap<>();
+    for (MonthlyRollup rollup : totals.toRollups(userId)) {
+      rollups.put(key(rollup), rollup);
+    }
+    return rollups;
+  }
+
+  /**
+   * Total the user's entries between the dates
+   *
+   * @param totals
+   * @param userId
+   * @param from first date included
+   * @param to last date included
+   */
+  private void addEntries(LedgerAggregator totals, String userId, LocalDate from, LocalDate to) {
+    Query query = new Query(Criteria.where("user_id").is(userId).and("date").gte(from).lte(to));
+    totals.merge(aggregate(userId, query, false));
+  }
+
+  /**
+   * Total the entries matching the query per month and category while the
+   * cursor is read. The entries are totalled a cursor batch at a time, and
+   * once more than parallelThreshold entries have been read, the following
+   * batches are totalled on the fork/join pool. The batch totals are merged
+   * in cursor order, so the result is the same as totalling sequentially.
+   *
+   * @param userId
+   * @param query
+   * @param storeCategories save the category of entries that had none
+   * @return totals
+   */
+  LedgerAggregator aggregate(String userId, Query query, boolean storeCategories) {
+    CategoryClassifier classifier = keywordService.getCategoryClassifier(userId);
+    LedgerAggregator totals = new LedgerAggregator();
+    query.fields().include(EntryStatsView.FIELDS);
+
+    // At most two batches per thread are in flight, so memory stays bounded
+    Deque<ForkJoinTask<EntryChunkTotals>> running = new ArrayDeque<>();
+    int maxRunning = pool.getParallelism() * 2;
+    List<EntryStatsView> chunk = new ArrayList<>(cursorBatchSize);
+    long read = 0;
+
+    try (Stream<EntryStatsView> entries = streamEntries(query)) {
+      Iterator<EntryStatsView> iterator = entries.iterator();
+      while (iterator.hasNext()) {
+        chunk.add(iterator.next());
+        read++;
+        if (chunk.size() < cursorBatchSize && iterator.hasNext()) {
+          continue;
+        }
+
+        if (read > parallelThreshold) {
+          List<EntryStatsView> entriesOfChunk = chunk;
+          running.add(pool.submit(() -> EntryChunkTotals.of(entriesOfChunk, classifier)));
+          if (running.size() >= maxRunning) {
+            merge(totals, running.poll().join(), storeCategories);
+          }
+        } else {
+          merge(totals, EntryChunkTotals.of(chunk, classifier), storeCategories);
+        }
+        chunk = new ArrayList<>(cursorBatchSize);
+      }
+    }
+    while (!running.isEmpty()) {
+      merge(totals, running.poll().join(), storeCategories);
+    }
+    return totals;
+  }
+
+  /**
+   * Add the chunk to the totals and store the categories it resolved
+   *
+   * @param totals
+   * @param chunk
+   * @param storeCategories
+   */
+  private void merge(LedgerAggregator totals, EntryChunkTotals chunk, boolean storeCategories) {
+    totals.merge(chunk.getTotals());
+    if (!storeCategories || chunk.getCategorizedIds().isEmpty()) {
+      return;
+    }
+
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class);
+    for (int i = 0; i < chunk.getCategorizedIds().size(); i++) {
+      bulkOperations.updateOne(Query.query(Criteria.where("_id").is(chunk.getCategorizedIds().get(i))),
+          Update.update("category", chunk.getCategories().get(i)));
+    }
+    bulkOperations.execute();
+  }
+
+  /**
+   * Read the statistics fields of the entries matching the query from a
+   * cursor, a batch at a time, so only one batch is held in memory however
+   * many entries the user has
+   *
+   * @param query
+   * @return entries, to be closed after use
+   */
+  private Stream<EntryStatsView> streamEntries(Query query) {
+    query.cursorBatchSize(cursorBatchSize);
+    return mongoTemplate.stream(query, EntryStatsView.class, mongoTemplate.getCollectionName(Entry.class));
+  }
+
+  private void ensureBuilt(String userId) {
+    if (!isBuilt(userId)) {
+      Lock buildLock = ledgerLocks.buildLock(userId);
+      buildLock.lock();
+      try {
+        if (!isBuilt(userId)) {
+          rebuild(userId);
+        }
+      } finally {
+        buildLock.unlock();
+      }
+    }
+  }
+
+  private boolean isBuilt(String userId) {
+    if (builtUsers.contains(userId)) {
+      return true;
+    }
+    if (monthlyRollupStatusRepository.existsById(userId)) {
+      builtUsers.add(userId);
+      return true;
+    }
+    return false;
+  }
+
+  private static String key(MonthlyRollup rollup) {
+    return rollup.getMonth() + '\u0000' + rollup.getCategory();
+  }
+
+}
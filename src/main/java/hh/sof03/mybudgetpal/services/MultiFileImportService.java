@@ -0,0 +1,145 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Imports the files of one upload in parallel. All uploads share a pool of
+ * app.import.maxConcurrentFiles threads, and one upload has at most
+ * app.import.maxConcurrentFilesPerRequest files in progress at a time.
+ *
+ * Files that overlap each other are safe to import at the same time because
+ * the unique index on the entries rejects the second copy of a row.
+ *
+ * Before a file is parsed, its SHA-256 digest is compared to the files the
+ * user has already imported, and an identical file is not imported again
+ * unless the import is forced.
+ */
+@Service
+public class MultiFileImportService {
+
+  private static final Logger log = LoggerFactory.getLogger(MultiFileImportService.class);
+
+  @Autowired
+  private StatementImportService statementImportService;
+
+  @Autowired
+  private ImportLogService importLogService;
+
+  @Value("${app.import.maxConcurrentFiles:8}")
+  private int maxConcurrentFiles;
+
+  @Value("${app.import.maxConcurrentFilesPerRequest:4}")
+  private int maxConcurrentFilesPerRequest;
+
+  private ThreadPoolTaskExecutor executor;
+
+  @PostConstruct
+  public void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(maxConcurrentFiles);
+    executor.setMaxPoolSize(maxConcurrentFiles);
+    executor.setThreadNamePrefix("import-file-");
+    executor.initialize();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Import the files and wait until all of them are processed
+   *
+   * @param sources
+   * @param statuses status of each file, in the same order as the sources
+   * @param user
+   * @param force if true, files the user has already imported are imported again
+   */
+  public void importFiles(List<StatementSource> sources, List<FileImportStatus> statuses, User user,
+      boolean force) throws InterruptedException {
+    CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+    int next = 0;
+    int running = 0;
+
+    while (next < sources.size() || running > 0) {
+      while (next < sources.size() && running < maxConcurrentFilesPerRequest) {
+        StatementSource source = sources.get(next);
+        FileImportStatus status = statuses.get(next);
+        completionService.submit(() -> importFile(source, status, user, force), null);
+        next++;
+        running++;
+      }
+
+      try {
+        completionService.take().get();
+      } catch (ExecutionException e) {
+        log.error("Import task failed", e.getCause());
+      }
+      running--;
+    }
+  }
+
+  /**
+   * Import the files and wait until all of them are processed
+   *
+   * @param sources
+   * @param user
+   * @param force if true, files the user has already imported are imported again
+   * @return status of each file, in the same order as the sources
+   */
+  public List<FileImportStatus> importFiles(List<StatementSource> sources, User user, boolean force)
+      throws InterruptedException {
+    List<FileImportStatus> statuses = new ArrayList<>();
+    for (StatementSource source : sources) {
+      statuses.add(new FileImportStatus(source.getFileName()));
+    }
+    importFiles(sources, statuses, user, force);
+    return statuses;
+  }
+
+  private void importFile(StatementSource source, FileImportStatus status, User user, boolean force) {
+    // A forced file is parsed even if it is in the import log, and the unique index skips the rows already saved
+    if (!force) {
+      try {
+        String sha256;
+        try (InputStream input = source.openStream()) {
+          sha256 = ImportLogService.sha256(input);
+        }
+        if (importLogService.isImported(user.getId(), sha256)) {
+          status.setSha256(sha256);
+          status.setStatus(FileImportStatus.Status.ALREADY_IMPORTED);
+          log.info("File " + source.getFileName() + " has already been imported");
+          return;
+        }
+      } catch (Exception e) {
+        status.setStatus(FileImportStatus.Status.FAILED);
+        log.error("Import of file " + source.getFileName() + " failed", e);
+        return;
+      }
+    }
+
+    try (InputStream input = source.openStream()) {
+      statementImportService.importStatement(input, source.getFileName(), user, status);
+    } catch (Exception e) {
+      status.setStatus(FileImportStatus.Status.FAILED);
+      log.error("Import of file " + source.getFileName() + " failed", e);
+    }
+  }
+
+}
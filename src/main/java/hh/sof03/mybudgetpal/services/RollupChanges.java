@@ -0,0 +1,77 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+import hh.sof03.mybudgetpal.statistics.LedgerAggregator;
+
+/**
+ * Changes to the monthly rollups of one user, collected per month and
+ * category so each rollup is updated once
+ */
+public class RollupChanges {
+
+  private final String userId;
+
+  private final Map<String, MonthlyRollup> changes = new LinkedHashMap<>();
+
+  public RollupChanges(String userId) {
+    this.userId = userId;
+  }
+
+  /**
+   * Count an entry in the rollup of its month and category
+   *
+   * @param date
+   * @param category
+   * @param amount
+   */
+  public void add(LocalDate date, String category, BigDecimal amount) {
+    rollup(date, category).add(toCents(amount));
+  }
+
+  /**
+   * Take an entry away from the rollup of its month and category
+   *
+   * @param date
+   * @param category
+   * @param amount
+   */
+  public void remove(LocalDate date, String category, BigDecimal amount) {
+    rollup(date, category).subtract(toCents(amount));
+  }
+
+  public String getUserId() {
+    return userId;
+  }
+
+  /**
+   * @return change of each month and category
+   */
+  public Collection<MonthlyRollup> getChanges() {
+    return changes.values();
+  }
+
+  public boolean isEmpty() {
+    return changes.isEmpty();
+  }
+
+  /**
+   * @param amount
+   * @return amount in cents, rounded half up to whole cents
+   */
+  public static long toCents(BigDecimal amount) {
+    return LedgerAggregator.toCents(amount);
+  }
+
+  private MonthlyRollup rollup(LocalDate date, String category) {
+    String month = YearMonth.from(date).toString();
+    return changes.computeIfAbsent(month + '\u0000' + category, key -> new MonthlyRollup(userId, month, category));
+  }
+
+}
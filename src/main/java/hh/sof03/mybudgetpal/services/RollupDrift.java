@@ -0,0 +1,70 @@
+package hh.sof03.mybudgetpal.services;
+
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+
+/**
+ * Difference between a stored monthly rollup and the totals computed from the
+ * entries. The amounts are in cents.
+ */
+public class RollupDrift {
+
+  private final String month;
+
+  private final String category;
+
+  private final MonthlyRollup expected;
+
+  private final MonthlyRollup actual;
+
+  /**
+   * @param expected totals computed from the entries
+   * @param actual   stored totals
+   */
+  public RollupDrift(String month, String category, MonthlyRollup expected, MonthlyRollup actual) {
+    this.month = month;
+    this.category = category;
+    this.expected = expected;
+    this.actual = actual;
+  }
+
+  public String getMonth() {
+    return month;
+  }
+
+  public String getCategory() {
+    return category;
+  }
+
+  public long getExpectedSum() {
+    return expected.getSum();
+  }
+
+  public long getActualSum() {
+    return actual.getSum();
+  }
+
+  public long getExpectedCount() {
+    return expected.getCount();
+  }
+
+  public long getActualCount() {
+    return actual.getCount();
+  }
+
+  public long getExpectedIncome() {
+    return expected.getIncome();
+  }
+
+  public long getActualIncome() {
+    return actual.getIncome();
+  }
+
+  public long getExpectedExpense() {
+    return expected.getExpense();
+  }
+
+  public long getActualExpense() {
+    return actual.getExpense();
+  }
+
+}
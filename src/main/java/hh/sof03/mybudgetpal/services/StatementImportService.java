@@ -0,0 +1,282 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.User;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.KeywordAutomaton;
+import hh.sof03.mybudgetpal.keywords.KeywordService;
+import hh.sof03.mybudgetpal.statements.BankStatementFormat;
+import hh.sof03.mybudgetpal.statements.BankStatementFormatRegistry;
+import hh.sof03.mybudgetpal.statements.StatementColumns;
+import hh.sof03.mybudgetpal.statements.StatementRecord;
+import hh.sof03.mybudgetpal.statements.StatementRowDecoder;
+import hh.sof03.mybudgetpal.statements.StatementTokenizer;
+
+@Service
+public class StatementImportService {
+
+  private static final Logger log = LoggerFactory.getLogger(StatementImportService.class);
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private KeywordService keywordService;
+
+  @Autowired
+  private BankStatementFormatRegistry formatRegistry;
+
+  @Autowired
+  private ImportLogService importLogService;
+
+  @Autowired
+  private EntryCategoryService entryCategoryService;
+
+  @Autowired
+  private MonthlyRollupService monthlyRollupService;
+
+  @Autowired
+  private MerchantSketchService merchantSketchService;
+
+  @Autowired
+  private LedgerLocks ledgerLocks;
+
+  @Value("${app.import.batchSize:500}")
+  private int importBatchSize;
+
+  @Value("${app.import.bankDetectionLookahead:200}")
+  private int bankDetectionLookahead;
+
+  @Value("${app.import.maxRowsPerFile:200000}")
+  private int maxRowsPerFile;
+
+  /**
+   * Process the statement and save the entries to the database.
+   * The statement is tokenized only once. The statement format is looked up
+   * once from the file name or the header row; when neither identifies the
+   * bank, the first records are kept in a look-ahead buffer until the bank is
+   * found and then passed on to be saved.
+   *
+   * The SHA-256 digest of the file is computed while it is read, and a
+   * successful import is recorded in the import log.
+   *
+   * @param input statement content, not closed by this method
+   * @param fileName
+   * @param user
+   * @param status progress of the import, updated while the file is processed
+   * @return true if the file was processed successfully, false otherwise
+   * @throws ImportLimitException if the file has more than app.import.maxRowsPerFile rows
+   */
+  public boolean importStatement(InputStream input, String fileName, User user, FileImportStatus status)
+      throws IOException {
+    return importStatement(input, fileName, user, status, maxRowsPerFile);
+  }
+
+  /**
+   * Process the statement and save the entries to the database, reading at
+   * most maxRows rows. If the limit is reached, the batches written before it
+   * stay in the database and the status of the file says how many rows they
+   * have, while the batch in progress is discarded.
+   *
+   * @param input statement content, not closed by this method
+   * @param fileName
+   * @param user
+   * @param status progress of the import, updated while the file is processed
+   * @param maxRows
+   * @return true if the file was processed successfully, false otherwise
+   * @throws ImportLimitException if the file has more than maxRows rows
+   */
+  public boolean importStatement(InputStream input, String fileName, User user, FileImportStatus status,
+      int maxRows) throws IOException {
+    DigestInputStream digestInput = new DigestInputStream(input, ImportLogService.newDigest());
+    StatementTokenizer tokenizer = new StatementTokenizer(new InputStreamReader(digestInput, StandardCharsets.UTF_8));
+    return importStatement(tokenizer, fileName, user, status, Math.min(maxRows, maxRowsPerFile),
+        () -> ImportLogService.toHex(digestInput.getMessageDigest()));
+  }
+
+  /**
+   * Process a statement that is already in memory, for example a memory-mapped
+   * file, and save the entries to the database
+   *
+   * @param content UTF-8 statement content
+   * @param sha256 digest of the content
+   * @param fileName
+   * @param user
+   * @param status progress of the import, updated while the file is processed
+   * @return true if the file was processed successfully, false otherwise
+   * @throws ImportLimitException if the file has more than app.import.maxRowsPerFile rows
+   */
+  public boolean importStatement(ByteBuffer content, String sha256, String fileName, User user,
+      FileImportStatus status) throws IOException {
+    StatementTokenizer tokenizer = new StatementTokenizer(content, StandardCharsets.UTF_8);
+    return importStatement(tokenizer, fileName, user, status, maxRowsPerFile, () -> sha256);
+  }
+
+  private boolean importStatement(StatementTokenizer tokenizer, String fileName, User user,
+      FileImportStatus status, int maxRows, Supplier<String> sha256) throws IOException {
+    status.setStatus(FileImportStatus.Status.PROCESSING);
+    try {
+      if (!readStatement(tokenizer, fileName, user, status, maxRows)) {
+        status.setStatus(FileImportStatus.Status.FAILED);
+        return false;
+      }
+
+      // The digest is complete only after the tokenizer has read the whole file
+      status.setSha256(sha256.get());
+      boolean firstImport = importLogService.record(user.getId(), status);
+      status.setStatus(firstImport || status.getInserted() > 0 ? FileImportStatus.Status.COMPLETED
+          : FileImportStatus.Status.ALREADY_IMPORTED);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      status.fail(e.getMessage());
+      throw e;
+    }
+  }
+
+  private boolean readStatement(StatementTokenizer tokenizer, String fileName, User user, FileImportStatus status,
+      int maxRows) throws IOException {
+    if (!tokenizer.nextRecord()) {
+      status.setError("File is empty");
+      return false;
+    }
+
+    String[] headers = tokenizer.record().fields();
+    BankStatementFormat format = formatRegistry.forFileName(fileName)
+        .or(() -> formatRegistry.forHeader(headers))
+        .orElse(null);
+    List<StatementRecord> lookahead = new ArrayList<>();
+
+    if (format == null) {
+      StatementColumns columns = StatementColumns.fromHeaders(headers);
+      while (lookahead.size() < bankDetectionLookahead && tokenizer.nextRecord()) {
+        StatementRecord record = tokenizer.record().copy();
+        lookahead.add(record);
+        format = determineFormat(record, columns, user);
+        if (format != null) {
+          break;
+        }
+      }
+    }
+
+    if (format == null) {
+      log.info("Bank not found for file " + fileName);
+      status.setError("Bank could not be determined");
+      return false;
+    }
+
+    log.info("Bank name is this: " + format.getBankName());
+    status.setBankName(format.getBankName());
+    StatementRowDecoder decoder = format.decoder(headers);
+
+    KeywordAutomaton excludedKeywords = keywordService.getExcludedKeywordMatcher(user.getId());
+    CategoryClassifier classifier = keywordService.getCategoryClassifier(user.getId());
+
+    try (EntryBatchWriter writer = new EntryBatchWriter(mongoTemplate, importBatchSize, inserted -> {
+      monthlyRollupService.addEntries(user.getId(), inserted);
+      merchantSketchService.addEntries(user.getId(), inserted);
+    }, ledgerLocks.entryWriteLock(user.getId()))) {
+      for (StatementRecord record : lookahead) {
+        importRecord(record, decoder, excludedKeywords, classifier, user, writer, status, maxRows);
+      }
+      lookahead.clear();
+
+      while (tokenizer.nextRecord()) {
+        importRecord(tokenizer.record(), decoder, excludedKeywords, classifier, user, writer, status, maxRows);
+      }
+
+      // Only a statement read to the end writes its last batch, closing the writer discards it
+      writer.flush();
+      status.setInserted(writer.getInsertedCount());
+      status.setSkippedDuplicate(writer.getDuplicateCount());
+      log.info("Imported {} entries in {} batches, skipped {} duplicates", writer.getInsertedCount(),
+          writer.getBatchCount(), writer.getDuplicateCount());
+    }
+
+    // Entries categorized with keywords that changed during the import are categorized again
+    if (keywordService.getKeywordVersion(user.getId()) != classifier.getVersion()) {
+      entryCategoryService.recategorizeAll(user.getId());
+    }
+
+    return true;
+  }
+
+  /**
+   * Convert a statement record to an entry and add it to the batch
+   *
+   * @param record
+   * @param decoder
+   * @param excludedKeywords
+   * @param classifier
+   * @param user
+   * @param writer
+   * @param status
+   * @param maxRows
+   */
+  private void importRecord(StatementRecord record, StatementRowDecoder decoder, KeywordAutomaton excludedKeywords,
+      CategoryClassifier classifier, User user, EntryBatchWriter writer, FileImportStatus status, int maxRows) {
+    if (status.getRowsParsed() >= maxRows) {
+      throw new ImportLimitException("File has more than " + maxRows + " rows");
+    }
+    status.setRowsParsed(status.getRowsParsed() + 1);
+    String title = decoder.title(record);
+
+    if (excludedKeywords.containsAny(title)) {
+      status.setSkippedExcluded(status.getSkippedExcluded() + 1);
+      return;
+    }
+
+    Entry entry = decoder.decode(record, title, user.getId());
+    entry.setCategory(classifier.categorize(title, entry.getAmount()));
+    writer.add(entry);
+    status.setInserted(writer.getInsertedCount());
+    status.setSkippedDuplicate(writer.getDuplicateCount());
+  }
+
+  /**
+   * Determine the statement format from a record of the statement. A deposit
+   * from the user to their own account tells the bank through the BIC code.
+   *
+   * @param record
+   * @param columns
+   * @param user
+   * @return format or null if the record does not identify the bank
+   */
+  private BankStatementFormat determineFormat(StatementRecord record, StatementColumns columns, User user) {
+    if (columns.getTitle() < 0 || columns.getAmount() < 0 || columns.getBic() < 0) {
+      return null;
+    }
+
+    String title = record.normalizedField(columns.getTitle());
+    long amount = record.minorUnits(columns.getAmount());
+
+    if ((title.contains(user.getFirstName().toLowerCase() + " " +
+        user.getLastName().toLowerCase())
+        || title.contains(user.getLastName().toLowerCase() + " " +
+            user.getFirstName().toLowerCase()))
+        && amount >= 0) {
+      BankStatementFormat format = formatRegistry.forBic(record.field(columns.getBic())).orElse(null);
+      log.info("Bank found from BIC is :" + (format != null ? format.getBankName() : ""));
+      return format;
+    }
+
+    return null;
+  }
+
+}
@@ -0,0 +1,47 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Statement file that can be opened for import
+ */
+public interface StatementSource {
+
+  String getFileName();
+
+  InputStream openStream() throws IOException;
+
+  static StatementSource of(MultipartFile file) {
+    return new StatementSource() {
+      @Override
+      public String getFileName() {
+        return file.getOriginalFilename();
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+        return file.getInputStream();
+      }
+    };
+  }
+
+  static StatementSource of(Path path, String fileName) {
+    return new StatementSource() {
+      @Override
+      public String getFileName() {
+        return fileName;
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+      }
+    };
+  }
+
+}
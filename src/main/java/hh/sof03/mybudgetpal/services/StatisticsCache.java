@@ -0,0 +1,116 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Caches the statistics response of each user until the user's data changes.
+ *
+ * Every user has a data version that is bumped whenever the data behind the
+ * statistics changes. A cached response is only used if it was computed at
+ * the current version, and the version is also the ETag of the response, so
+ * an unchanged response can be answered with 304 without computing it.
+ */
+@Service
+public class StatisticsCache {
+
+  @Value("${app.statistics.cacheMaxUsers:10000}")
+  private long cacheMaxUsers;
+
+  @Value("${app.statistics.cacheTtlMinutes:10}")
+  private long cacheTtlMinutes;
+
+  // Versions restart from zero on every start, so the ETags include a value unique to this process
+  private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+  private final Map<String, AtomicLong> dataVersions = new ConcurrentHashMap<>();
+
+  private Cache<String, CachedStatistics> cache;
+
+  /**
+   * Statistics of a user computed at a data version
+   */
+  private record CachedStatistics(long version, Map<String, Object> statistics) {
+  }
+
+  @PostConstruct
+  public void init() {
+    cache = Caffeine.newBuilder()
+        .maximumSize(cacheMaxUsers)
+        .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+        .build();
+  }
+
+  /**
+   * Mark the user's data changed, so the cached statistics and ETag are no
+   * longer used
+   *
+   * @param userId
+   */
+  public void dataChanged(String userId) {
+    dataVersions.computeIfAbsent(userId, id -> new AtomicLong()).incrementAndGet();
+    // Cached date ranges are left to expire, they are never used at an old version
+    cache.invalidate(key(userId, ""));
+  }
+
+  /**
+   * @param userId
+   * @return strong ETag of the user's statistics at the current data version
+   */
+  public String getETag(String userId) {
+    return eTag(getDataVersion(userId));
+  }
+
+  /**
+   * Get the user's statistics from the cache, computing them if the cached
+   * ones are missing or out of date
+   *
+   * @param userId
+   * @param variant identifies the request parameters, empty for the defaults
+   * @param compute computes the statistics from the stored data
+   * @return statistics and the ETag of the data version they were computed at
+   */
+  public StatisticsResult get(String userId, String variant, Supplier<Map<String, Object>> compute) {
+    String key = key(userId, variant);
+    // The version is read before computing, so a change made meanwhile makes the result out of date
+    long version = getDataVersion(userId);
+    CachedStatistics cached = cache.getIfPresent(key);
+    if (cached == null || cached.version() != version) {
+      cached = new CachedStatistics(version, compute.get());
+      cache.asMap().merge(key, cached, (old, current) -> old.version() > current.version() ? old : current);
+    }
+    return new StatisticsResult(eTag(cached.version()), cached.statistics());
+  }
+
+  /**
+   * Statistics with their ETag
+   */
+  public record StatisticsResult(String eTag, Map<String, Object> statistics) {
+  }
+
+  private long getDataVersion(String userId) {
+    AtomicLong version = dataVersions.get(userId);
+    return version == null ? 0 : version.get();
+  }
+
+  private static String key(String userId, String variant) {
+    return userId + '\u0000' + variant;
+  }
+
+  private String eTag(long version) {
+    return "\"" + epoch + "-" + version + "\"";
+  }
+
+}
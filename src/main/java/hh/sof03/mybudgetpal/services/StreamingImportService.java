@@ -0,0 +1,128 @@
+package hh.sof03.mybudgetpal.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadByteCountLimitException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import hh.sof03.mybudgetpal.domain.User;
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Imports statement files while the multipart request body is still being
+ * received. Each file part is parsed straight from the request stream, so
+ * the upload is never buffered to memory or temporary files.
+ *
+ * A request larger than app.import.stream.maxRequestBytes is rejected before
+ * anything is read when the client sends its length. A file larger than
+ * app.import.stream.maxFileBytes fails as soon as the limit is passed and
+ * the rest of its bytes are skipped. The batches of a stopped file written
+ * before the limit are kept, and its status says how many rows they have.
+ * The headers of a part are limited to
+ * app.import.stream.maxPartHeaderBytes, so they are never buffered without
+ * bound either. Parts that are not CSV files fail without being read.
+ */
+@Service
+public class StreamingImportService {
+
+  private static final Logger log = LoggerFactory.getLogger(StreamingImportService.class);
+
+  @Autowired
+  private StatementImportService statementImportService;
+
+  @Value("${app.import.stream.maxFileBytes:20971520}")
+  private long maxFileBytes;
+
+  @Value("${app.import.stream.maxRequestBytes:104857600}")
+  private long maxRequestBytes;
+
+  @Value("${app.import.stream.maxRowsPerRequest:1000000}")
+  private int maxRowsPerRequest;
+
+  @Value("${app.import.stream.maxPartHeaderBytes:4096}")
+  private int maxPartHeaderBytes;
+
+  /**
+   * Import the file parts of a multipart request in the order they arrive
+   *
+   * @param request multipart request whose body has not been read yet
+   * @param user
+   * @return status of each file part
+   * @throws org.apache.commons.fileupload2.core.FileUploadSizeException if
+   *         the request is larger than the limit
+   * @throws ImportLimitException if the files have more rows than the limit
+   * @throws IOException if the request could not be read
+   */
+  public List<FileImportStatus> importMultipart(HttpServletRequest request, User user) throws IOException {
+    JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+    upload.setMaxSize(maxRequestBytes);
+    upload.setMaxFileSize(maxFileBytes);
+    upload.setMaxPartHeaderSize(maxPartHeaderBytes);
+
+    List<FileImportStatus> statuses = new ArrayList<>();
+    int rowsLeft = maxRowsPerRequest;
+
+    FileItemInputIterator items = upload.getItemIterator(request);
+    while (items.hasNext()) {
+      FileItemInput item = items.next();
+      if (item.isFormField()) {
+        continue;
+      }
+
+      FileImportStatus status = new FileImportStatus(item.getName());
+      statuses.add(status);
+
+      if (!"text/csv".equals(item.getContentType())) {
+        status.setError("Only CSV files are allowed");
+        status.setStatus(FileImportStatus.Status.FAILED);
+        continue;
+      }
+
+      if (rowsLeft <= 0) {
+        throw new ImportLimitException(rowLimitMessage(statuses));
+      }
+
+      try (InputStream input = item.getInputStream()) {
+        statementImportService.importStatement(input, item.getName(), user, status, rowsLeft);
+      } catch (FileUploadByteCountLimitException e) {
+        status.fail("File is larger than " + maxFileBytes + " bytes");
+        log.info("Streaming import of file " + item.getName() + " stopped: " + e.getMessage());
+      } catch (ImportLimitException e) {
+        if (status.getRowsParsed() >= rowsLeft) {
+          throw new ImportLimitException(rowLimitMessage(statuses));
+        }
+        log.info("Streaming import of file " + item.getName() + " stopped: " + e.getMessage());
+      }
+      rowsLeft -= status.getRowsParsed();
+    }
+
+    return statuses;
+  }
+
+  /**
+   * @param statuses
+   * @return error for an upload over the row limit, with the number of rows
+   *         imported before the limit was reached
+   */
+  private String rowLimitMessage(List<FileImportStatus> statuses) {
+    int kept = 0;
+    for (FileImportStatus status : statuses) {
+      kept += status.getInserted();
+    }
+    String message = "Upload has more than " + maxRowsPerRequest + " rows";
+    return kept > 0 ? message + " (" + kept + " rows imported before the limit were kept)" : message;
+  }
+
+}
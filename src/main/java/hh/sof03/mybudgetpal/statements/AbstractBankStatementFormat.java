@@ -0,0 +1,83 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.util.List;
+
+/**
+ * Base class for bank statement formats. The header fingerprint and the
+ * column layout of the bank's own export are computed once when the format
+ * is created, so files with the expected header reuse the same decoder.
+ */
+public abstract class AbstractBankStatementFormat implements BankStatementFormat {
+
+  private final String bankName;
+
+  private final String bic;
+
+  private final List<String> fileNameHints;
+
+  private final DateOrder dateOrder;
+
+  private final String headerFingerprint;
+
+  private final StatementRowDecoder defaultDecoder;
+
+  protected AbstractBankStatementFormat(String bankName, String bic, List<String> fileNameHints,
+      DateOrder dateOrder, String header) {
+    String[] headers = header.split(";");
+    this.bankName = bankName;
+    this.bic = bic;
+    this.fileNameHints = fileNameHints;
+    this.dateOrder = dateOrder;
+    this.headerFingerprint = fingerprint(headers);
+    this.defaultDecoder = new StatementRowDecoder(bankName, dateOrder, StatementColumns.fromHeaders(headers));
+  }
+
+  @Override
+  public String getBankName() {
+    return bankName;
+  }
+
+  @Override
+  public boolean matchesFileName(String lowerCaseFileName) {
+    for (String hint : fileNameHints) {
+      if (lowerCaseFileName.contains(hint)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean matchesBic(String bic) {
+    return this.bic.equalsIgnoreCase(bic.trim());
+  }
+
+  @Override
+  public boolean matchesHeader(String[] headers) {
+    return headerFingerprint.equals(fingerprint(headers));
+  }
+
+  @Override
+  public StatementRowDecoder decoder(String[] headers) {
+    if (matchesHeader(headers)) {
+      return defaultDecoder;
+    }
+    return new StatementRowDecoder(bankName, dateOrder, StatementColumns.fromHeaders(headers));
+  }
+
+  /**
+   * Build a fingerprint of the header row that ignores case and whitespace
+   * around the column names
+   *
+   * @param headers
+   * @return fingerprint
+   */
+  private static String fingerprint(String[] headers) {
+    StringBuilder fingerprint = new StringBuilder();
+    for (String header : headers) {
+      fingerprint.append(header.trim().toLowerCase()).append(';');
+    }
+    return fingerprint.toString();
+  }
+
+}
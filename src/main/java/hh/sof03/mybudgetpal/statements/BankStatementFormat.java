@@ -0,0 +1,40 @@
+package hh.sof03.mybudgetpal.statements;
+
+/**
+ * Statement export format of one bank. Implementations are Spring components
+ * and are looked up through {@link BankStatementFormatRegistry}.
+ */
+public interface BankStatementFormat {
+
+  /**
+   * @return bank name stored on the imported entries
+   */
+  String getBankName();
+
+  /**
+   * @param lowerCaseFileName
+   * @return true if the file name refers to this bank
+   */
+  boolean matchesFileName(String lowerCaseFileName);
+
+  /**
+   * @param bic
+   * @return true if the BIC code belongs to this bank
+   */
+  boolean matchesBic(String bic);
+
+  /**
+   * @param headers
+   * @return true if the header row is the one this bank exports
+   */
+  boolean matchesHeader(String[] headers);
+
+  /**
+   * Get a decoder for a file with the given header row
+   *
+   * @param headers
+   * @return StatementRowDecoder
+   */
+  StatementRowDecoder decoder(String[] headers);
+
+}
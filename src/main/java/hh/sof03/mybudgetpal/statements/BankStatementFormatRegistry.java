@@ -0,0 +1,64 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Looks up the statement format of a file. Formats are checked in their
+ * {@link org.springframework.core.annotation.Order}.
+ */
+@Component
+public class BankStatementFormatRegistry {
+
+  private final List<BankStatementFormat> formats;
+
+  @Autowired
+  public BankStatementFormatRegistry(List<BankStatementFormat> formats) {
+    this.formats = List.copyOf(formats);
+  }
+
+  /**
+   * Get the format from the file name
+   *
+   * @param filename
+   * @return format if the file name refers to a bank
+   */
+  public Optional<BankStatementFormat> forFileName(String filename) {
+    if (filename == null) {
+      return Optional.empty();
+    }
+    String lowerCaseFileName = filename.toLowerCase();
+    return formats.stream().filter(format -> format.matchesFileName(lowerCaseFileName)).findFirst();
+  }
+
+  /**
+   * Get the format from the header row of the file
+   *
+   * @param headers
+   * @return format if the header row is a bank's own export header
+   */
+  public Optional<BankStatementFormat> forHeader(String[] headers) {
+    return formats.stream().filter(format -> format.matchesHeader(headers)).findFirst();
+  }
+
+  /**
+   * Get the format from a BIC code
+   *
+   * @param bic
+   * @return format if the BIC code belongs to a known bank
+   */
+  public Optional<BankStatementFormat> forBic(String bic) {
+    if (bic == null) {
+      return Optional.empty();
+    }
+    return formats.stream().filter(format -> format.matchesBic(bic)).findFirst();
+  }
+
+  public List<BankStatementFormat> getFormats() {
+    return formats;
+  }
+
+}
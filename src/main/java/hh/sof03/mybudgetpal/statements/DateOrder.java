@@ -0,0 +1,6 @@
+package hh.sof03.mybudgetpal.statements;
+
+public enum DateOrder {
+  DAY_MONTH_YEAR,
+  YEAR_MONTH_DAY
+}
@@ -0,0 +1,19 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.util.List;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Component
+@Order(2)
+public class OpStatementFormat extends AbstractBankStatementFormat {
+
+  public static final String HEADER = "Kirjauspäivä;Arvopäivä;Määrä EUROA;Laji;Selitys;Saaja/Maksaja;"
+      + "Saajan tilinumero;Saajan pankin BIC;Viite;Viesti;Arkistointitunnus";
+
+  public OpStatementFormat() {
+    super("op-pankki", "OKOYFIHH", List.of("oppankki", "op"), DateOrder.YEAR_MONTH_DAY, HEADER);
+  }
+
+}
@@ -0,0 +1,19 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.util.List;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+@Component
+@Order(1)
+public class SPankkiStatementFormat extends AbstractBankStatementFormat {
+
+  public static final String HEADER = "Kirjauspäivä;Maksupäivä;Summa;Tapahtumalaji;Maksaja;Saajan nimi;"
+      + "Saajan tilinumero;Saajan BIC-tunnus;Viitenumero;Viesti;Arkistointitunnus";
+
+  public SPankkiStatementFormat() {
+    super("s-pankki", "SBANFIHH", List.of("spankki", "s-pankki"), DateOrder.DAY_MONTH_YEAR, HEADER);
+  }
+
+}
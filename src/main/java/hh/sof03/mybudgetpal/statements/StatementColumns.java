@@ -0,0 +1,91 @@
+package hh.sof03.mybudgetpal.statements;
+
+/**
+ * Positions of the columns the importer reads from a statement file.
+ * A missing column has the index -1.
+ */
+public class StatementColumns {
+
+  private final int date;
+
+  private final int amount;
+
+  private final int title;
+
+  private final int referenceId;
+
+  private final int bic;
+
+  public StatementColumns(int date, int amount, int title, int referenceId, int bic) {
+    this.date = date;
+    this.amount = amount;
+    this.title = title;
+    this.referenceId = referenceId;
+    this.bic = bic;
+  }
+
+  /**
+   * Map the column indexes based on the headers
+   *
+   * @param headers
+   * @return StatementColumns
+   */
+  public static StatementColumns fromHeaders(String[] headers) {
+    int date = -1;
+    int amount = -1;
+    int title = -1;
+    int referenceId = -1;
+    int bic = -1;
+
+    for (int i = 0; i < headers.length; i++) {
+      String header = headers[i].trim().toLowerCase();
+      if (header.contains("kirjauspäivä") || header.contains("päivämäärä")) {
+        date = i;
+      } else if (header.contains("summa") || header.contains("määrä")) {
+        amount = i;
+      } else if (header.contains("saaja/maksaja") || header.equals("saajan nimi")) {
+        title = i;
+      } else if (header.contains("arkistointitunnus")) {
+        referenceId = i;
+      } else if (header.contains("bic")) {
+        bic = i;
+      }
+    }
+
+    return new StatementColumns(date, amount, title, referenceId, bic);
+  }
+
+  /**
+   * @return true if the columns needed to create entries were found
+   */
+  public boolean hasEntryColumns() {
+    return date >= 0 && amount >= 0 && title >= 0 && referenceId >= 0;
+  }
+
+  public int getDate() {
+    return date;
+  }
+
+  public int getAmount() {
+    return amount;
+  }
+
+  public int getTitle() {
+    return title;
+  }
+
+  public int getReferenceId() {
+    return referenceId;
+  }
+
+  public int getBic() {
+    return bic;
+  }
+
+  @Override
+  public String toString() {
+    return "{date=" + date + ", amount=" + amount + ", title=" + title + ", referenceId=" + referenceId
+        + ", bic=" + bic + "}";
+  }
+
+}
@@ -0,0 +1,238 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * One record of a statement file. The characters of all fields are kept in a
+ * single buffer and the fields are offsets into it, so amounts and dates can
+ * be parsed without creating Strings.
+ */
+public class StatementRecord {
+
+  private char[] chars;
+
+  private int length = 0;
+
+  private int[] fieldStarts;
+
+  private int[] fieldEnds;
+
+  private int fieldCount = 0;
+
+  public StatementRecord() {
+    this.chars = new char[256];
+    this.fieldStarts = new int[16];
+    this.fieldEnds = new int[16];
+  }
+
+  private StatementRecord(char[] chars, int length, int[] fieldStarts, int[] fieldEnds, int fieldCount) {
+    this.chars = chars;
+    this.length = length;
+    this.fieldStarts = fieldStarts;
+    this.fieldEnds = fieldEnds;
+    this.fieldCount = fieldCount;
+  }
+
+  /**
+   * @return copy of the record that is not changed by the tokenizer
+   */
+  public StatementRecord copy() {
+    return new StatementRecord(Arrays.copyOf(chars, length), length, Arrays.copyOf(fieldStarts, fieldCount),
+        Arrays.copyOf(fieldEnds, fieldCount), fieldCount);
+  }
+
+  /**
+   * @return number of fields in the record
+   */
+  public int fieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * Get the field as a String
+   *
+   * @param index
+   * @return field value without quotes
+   */
+  public String field(int index) {
+    checkField(index);
+    return new String(chars, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+  }
+
+  /**
+   * Get the fields of the record as Strings
+   *
+   * @return field values without quotes
+   */
+  public String[] fields() {
+    String[] fields = new String[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      fields[i] = field(i);
+    }
+    return fields;
+  }
+
+  /**
+   * Get the field in lower case with runs of two or more whitespace
+   * characters collapsed to a single space
+   *
+   * @param index
+   * @return normalized field value
+   */
+  public String normalizedField(int index) {
+    checkField(index);
+    int start = fieldStarts[index];
+    int end = fieldEnds[index];
+    char[] normalized = new char[end - start];
+    int length = 0;
+
+    int i = start;
+    while (i < end) {
+      char c = chars[i];
+      if (isWhitespace(c)) {
+        int runEnd = i + 1;
+        while (runEnd < end && isWhitespace(chars[runEnd])) {
+          runEnd++;
+        }
+        normalized[length++] = runEnd - i > 1 ? ' ' : c;
+        i = runEnd;
+      } else {
+        normalized[length++] = Character.toLowerCase(c);
+        i++;
+      }
+    }
+
+    return new String(normalized, 0, length);
+  }
+
+  /**
+   * Parse an amount such as "-1 234,56" or "12.5" into minor units (cents).
+   * Spaces are treated as thousand separators and either a comma or a dot
+   * as the decimal separator.
+   *
+   * @param index
+   * @return amount in cents
+   */
+  public long minorUnits(int index) {
+    checkField(index);
+    int start = fieldStarts[index];
+    int end = fieldEnds[index];
+
+    boolean negative = false;
+    boolean separatorFound = false;
+    int fractionDigits = 0;
+    int digits = 0;
+    long value = 0;
+
+    for (int i = start; i < end; i++) {
+      char c = chars[i];
+      if (c >= '0' && c <= '9') {
+        if (separatorFound && ++fractionDigits > 2) {
+          throw new NumberFormatException("Too many decimals in amount: " + field(index));
+        }
+        if (++digits > 17) {
+          throw new NumberFormatException("Amount out of range: " + field(index));
+        }
+        value = value * 10 + (c - '0');
+      } else if ((c == ',' || c == '.') && !separatorFound) {
+        separatorFound = true;
+      } else if (c == '-' && digits == 0 && !negative) {
+        negative = true;
+      } else if (c == '+' && digits == 0) {
+        continue;
+      } else if (!isWhitespace(c) && c != '\u00A0') {
+        throw new NumberFormatException("Invalid amount: " + field(index));
+      }
+    }
+
+    if (digits == 0) {
+      throw new NumberFormatException("Invalid amount: " + field(index));
+    }
+
+    for (; fractionDigits < 2; fractionDigits++) {
+      value *= 10;
+    }
+
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse a date made of three numbers separated by any non-digit
+   * characters, such as "31.12.2024" or "2024-12-31"
+   *
+   * @param index
+   * @param order order of the day, month and year in the field
+   * @return LocalDate object
+   */
+  public LocalDate date(int index, DateOrder order) {
+    checkField(index);
+    int[] parts = new int[3];
+    int part = -1;
+    boolean inNumber = false;
+
+    for (int i = fieldStarts[index]; i < fieldEnds[index]; i++) {
+      char c = chars[i];
+      if (c >= '0' && c <= '9') {
+        if (!inNumber) {
+          if (++part > 2) {
+            throw new IllegalArgumentException("Invalid date: " + field(index));
+          }
+          inNumber = true;
+        }
+        parts[part] = parts[part] * 10 + (c - '0');
+      } else {
+        inNumber = false;
+      }
+    }
+
+    if (part != 2) {
+      throw new IllegalArgumentException("Invalid date: " + field(index));
+    }
+
+    switch (order) {
+      case YEAR_MONTH_DAY:
+        return LocalDate.of(parts[0], parts[1], parts[2]);
+      case DAY_MONTH_YEAR:
+      default:
+        return LocalDate.of(parts[2], parts[1], parts[0]);
+    }
+  }
+
+  void clear() {
+    length = 0;
+    fieldCount = 0;
+  }
+
+  int length() {
+    return length;
+  }
+
+  void append(char c) {
+    if (length == chars.length) {
+      chars = Arrays.copyOf(chars, chars.length * 2);
+    }
+    chars[length++] = c;
+  }
+
+  void addField(int start, int end) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount] = end;
+    fieldCount++;
+  }
+
+  private void checkField(int index) {
+    if (index < 0 || index >= fieldCount) {
+      throw new IndexOutOfBoundsException("Record has no column " + index);
+    }
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+}
@@ -0,0 +1,65 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.math.BigDecimal;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+/**
+ * Turns the records of one statement file into entries. The column positions
+ * and the date order are resolved before the first record is read.
+ */
+public class StatementRowDecoder {
+
+  private final String bankName;
+
+  private final DateOrder dateOrder;
+
+  private final int dateColumn;
+
+  private final int amountColumn;
+
+  private final int titleColumn;
+
+  private final int referenceIdColumn;
+
+  public StatementRowDecoder(String bankName, DateOrder dateOrder, StatementColumns columns) {
+    if (!columns.hasEntryColumns()) {
+      throw new IllegalArgumentException("Statement is missing required columns: " + columns);
+    }
+    this.bankName = bankName;
+    this.dateOrder = dateOrder;
+    this.dateColumn = columns.getDate();
+    this.amountColumn = columns.getAmount();
+    this.titleColumn = columns.getTitle();
+    this.referenceIdColumn = columns.getReferenceId();
+  }
+
+  /**
+   * Get the normalized title of the record, used to check excluded keywords
+   * before the rest of the record is decoded
+   *
+   * @param record
+   * @return title in lower case
+   */
+  public String title(StatementRecord record) {
+    return record.normalizedField(titleColumn);
+  }
+
+  /**
+   * Create an entry from the record
+   *
+   * @param record
+   * @param title title returned by {@link #title(StatementRecord)}
+   * @param userId
+   * @return Entry
+   */
+  public Entry decode(StatementRecord record, String title, String userId) {
+    return new Entry(record.date(dateColumn, dateOrder), BigDecimal.valueOf(record.minorUnits(amountColumn), 2),
+        title, bankName, record.field(referenceIdColumn), userId);
+  }
+
+  public String getBankName() {
+    return bankName;
+  }
+
+}
@@ -0,0 +1,206 @@
+package hh.sof03.mybudgetpal.statements;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Tokenizer for semicolon separated bank statement files.
+ *
+ * Records are read one at a time into a reused {@link StatementRecord}.
+ * Quoted fields may contain separators, line breaks and doubled quotes.
+ */
+public class StatementTokenizer implements Closeable {
+
+  private static final char SEPARATOR = ';';
+
+  private static final char QUOTE = '"';
+
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+  private final Reader reader;
+
+  private final ByteBuffer bytes;
+
+  private final CharsetDecoder decoder;
+
+  private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+
+  private int readPosition = 0;
+
+  private int readLimit = 0;
+
+  private boolean endOfInput = false;
+
+  private boolean decoderFlushed = false;
+
+  private final StatementRecord record = new StatementRecord();
+
+  private long recordNumber = 0;
+
+  private boolean startOfInput = true;
+
+  public StatementTokenizer(Reader reader) {
+    this.reader = reader;
+    this.bytes = null;
+    this.decoder = null;
+  }
+
+  public StatementTokenizer(ByteBuffer bytes, Charset charset) {
+    this.reader = null;
+    this.bytes = bytes;
+    this.decoder = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Read the next non-empty record
+   *
+   * @return true if a record was read, false at the end of the input
+   */
+  public boolean nextRecord() throws IOException {
+    while (true) {
+      record.clear();
+
+      int c = read();
+      if (c < 0) {
+        return false;
+      }
+      if (c == '\n' || c == '\r') {
+        continue; // empty line
+      }
+
+      while (true) {
+        int start = record.length();
+        boolean quoted = c == QUOTE;
+
+        if (quoted) {
+          c = read();
+          while (c >= 0) {
+            if (c == QUOTE) {
+              c = read();
+              if (c != QUOTE) {
+                break; // closing quote
+              }
+            }
+            record.append((char) c);
+            c = read();
+          }
+        }
+
+        // Unquoted field, or text after the closing quote. Stray quotes are
+        // dropped like the old importer did.
+        while (c >= 0 && c != SEPARATOR && c != '\n' && c != '\r') {
+          if (c != QUOTE) {
+            record.append((char) c);
+          }
+          c = read();
+        }
+
+        record.addField(start, record.length());
+
+        if (c == SEPARATOR) {
+          c = read();
+          continue;
+        }
+        if (c == '\r') {
+          skipLineFeed();
+        }
+        recordNumber++;
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Get the current record. The record is reused for the next record, so use
+   * {@link StatementRecord#copy()} to keep it.
+   *
+   * @return current record
+   */
+  public StatementRecord record() {
+    return record;
+  }
+
+  /**
+   * @return number of records read so far
+   */
+  public long recordNumber() {
+    return recordNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      reader.close();
+    }
+  }
+
+  private void skipLineFeed() throws IOException {
+    if (readPosition == readLimit && !fill()) {
+      return;
+    }
+    if (readBuffer[readPosition] == '\n') {
+      readPosition++;
+    }
+  }
+
+  private int read() throws IOException {
+    if (readPosition == readLimit && !fill()) {
+      return -1;
+    }
+    char c = readBuffer[readPosition++];
+    if (startOfInput) {
+      startOfInput = false;
+      if (c == '\uFEFF') {
+        return read(); // byte order mark
+      }
+    }
+    return c;
+  }
+
+  private boolean fill() throws IOException {
+    if (endOfInput) {
+      return false;
+    }
+
+    int count;
+    if (reader != null) {
+      count = reader.read(readBuffer, 0, readBuffer.length);
+    } else {
+      count = decode();
+    }
+
+    if (count <= 0) {
+      endOfInput = true;
+      return false;
+    }
+
+    readPosition = 0;
+    readLimit = count;
+    return true;
+  }
+
+  private int decode() throws IOException {
+    if (decoderFlushed) {
+      return 0;
+    }
+    CharBuffer out = CharBuffer.wrap(readBuffer);
+    CoderResult result = decoder.decode(bytes, out, true);
+    if (result.isError()) {
+      result.throwException();
+    }
+    if (!bytes.hasRemaining() && !decoderFlushed && result.isUnderflow()) {
+      decoderFlushed = decoder.flush(out).isUnderflow();
+    }
+    return out.position();
+  }
+
+}
@@ -0,0 +1,60 @@
+package hh.sof03.mybudgetpal.statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hh.sof03.mybudgetpal.domain.EntryStatsView;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+
+/**
+ * Totals of one chunk of a user's entries. Chunks can be totalled on
+ * different threads and merged in order afterwards. Entries without a stored
+ * category are categorized, and their ids are kept with the category so the
+ * caller can store it.
+ */
+public class EntryChunkTotals {
+
+  private final LedgerAggregator totals = new LedgerAggregator();
+
+  private final List<String> categorizedIds = new ArrayList<>();
+
+  private final List<String> categories = new ArrayList<>();
+
+  /**
+   * @param entries
+   * @param classifier categorizes the entries without a stored category
+   * @return totals of the entries
+   */
+  public static EntryChunkTotals of(List<EntryStatsView> entries, CategoryClassifier classifier) {
+    EntryChunkTotals chunk = new EntryChunkTotals();
+    for (EntryStatsView entry : entries) {
+      String category = entry.category();
+      if (category == null) {
+        category = classifier.categorize(entry.title(), entry.amount());
+        chunk.categorizedIds.add(entry.id());
+        chunk.categories.add(category);
+      }
+      chunk.totals.add(entry.date(), category, entry.amount());
+    }
+    return chunk;
+  }
+
+  public LedgerAggregator getTotals() {
+    return totals;
+  }
+
+  /**
+   * @return ids of the entries that had no stored category
+   */
+  public List<String> getCategorizedIds() {
+    return categorizedIds;
+  }
+
+  /**
+   * @return categories of the entries in getCategorizedIds, in the same order
+   */
+  public List<String> getCategories() {
+    return categories;
+  }
+
+}
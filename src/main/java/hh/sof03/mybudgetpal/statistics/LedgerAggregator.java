@@ -0,0 +1,261 @@
+package hh.sof03.mybudgetpal.statistics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+
+/**
+ * Totals of a ledger per month and category, kept in cents in a month by
+ * category matrix of longs. Categories get dense ids in the order they are
+ * first seen, and each month has a row with the sum, count, income and
+ * expense of every category id, so adding an amount only indexes arrays.
+ * The totals are exact, there is no floating point or boxing involved.
+ */
+public class LedgerAggregator {
+
+  private static final int SUM = 0;
+
+  private static final int COUNT = 1;
+
+  private static final int INCOME = 2;
+
+  private static final int EXPENSE = 3;
+
+  private static final int FIELDS = 4;
+
+  private final Map<String, Integer> categoryIds = new HashMap<>();
+
+  private String[] categories = new String[16];
+
+  private int categoryCount = 0;
+
+  // Row of totals for each month from firstMonth, FIELDS values per category id; null for months without totals
+  private long[][] rows = new long[0][];
+
+  private int firstMonth;
+
+  /**
+   * Totals of one month and category
+   */
+  @FunctionalInterface
+  public interface TotalsConsumer {
+
+    void accept(int month, String category, long sum, long count, long income, long expense);
+
+  }
+
+  /**
+   * @param category
+   * @return dense id of the category, assigned when it is first seen
+   */
+  public int categoryId(String category) {
+    Integer id = categoryIds.get(category);
+    if (id != null) {
+      return id;
+    }
+    if (categoryCount == categories.length) {
+      categories = Arrays.copyOf(categories, categoryCount * 2);
+    }
+    categories[categoryCount] = category;
+    categoryIds.put(category, categoryCount);
+    return categoryCount++;
+  }
+
+  /**
+   * Add an entry amount to the totals
+   *
+   * @param date
+   * @param category
+   * @param amount
+   */
+  public void add(LocalDate date, String category, BigDecimal amount) {
+    add(month(date), categoryId(category), toCents(amount));
+  }
+
+  /**
+   * Add an entry amount to the totals
+   *
+   * @param month see {@link #month(LocalDate)}
+   * @param categoryId
+   * @param cents
+   */
+  public void add(int month, int categoryId, long cents) {
+    long[] row = row(month, categoryId);
+    int i = categoryId * FIELDS;
+    row[i + SUM] += cents;
+    row[i + COUNT]++;
+    row[i + (cents < 0 ? EXPENSE : INCOME)] += cents;
+  }
+
+  /**
+   * Add the totals of a monthly rollup
+   *
+   * @param rollup
+   */
+  public void add(MonthlyRollup rollup) {
+    add(month(YearMonth.parse(rollup.getMonth())), categoryId(rollup.getCategory()), rollup.getSum(),
+        rollup.getCount(), rollup.getIncome(), rollup.getExpense());
+  }
+
+  /**
+   * Add the totals of another aggregator. The categories of the other one
+   * are registered in its id order first, so merging the aggregators of
+   * consecutive parts of a ledger in order gives the same category ids as
+   * adding the whole ledger to one aggregator.
+   *
+   * @param other
+   */
+  public void merge(LedgerAggregator other) {
+    for (int c = 0; c < other.categoryCount; c++) {
+      categoryId(other.categories[c]);
+    }
+    other.forEach((month, category, sum, count, income, expense) -> add(month, categoryId(category), sum, count,
+        income, expense));
+  }
+
+  /**
+   * Pass the totals of each month and category with entries, in month order
+   *
+   * @param consumer
+   */
+  public void forEach(TotalsConsumer consumer) {
+    for (int m = 0; m < rows.length; m++) {
+      long[] row = rows[m];
+      if (row == null) {
+        continue;
+      }
+      for (int c = 0; c < categoryCount && c * FIELDS < row.length; c++) {
+        int i = c * FIELDS;
+        if (row[i + COUNT] != 0) {
+          consumer.accept(firstMonth + m, categories[c], row[i + SUM], row[i + COUNT], row[i + INCOME],
+              row[i + EXPENSE]);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return sum of each category id over all months
+   */
+  public long[] getCategorySums() {
+    long[] sums = new long[categoryCount];
+    for (long[] row : rows) {
+      if (row == null) {
+        continue;
+      }
+      for (int c = 0; c < categoryCount && c * FIELDS < row.length; c++) {
+        sums[c] += row[c * FIELDS + SUM];
+      }
+    }
+    return sums;
+  }
+
+  /**
+   * @param categoryId
+   * @return category with the id
+   */
+  public String getCategory(int categoryId) {
+    return categories[categoryId];
+  }
+
+  public int getCategoryCount() {
+    return categoryCount;
+  }
+
+  /**
+   * @param userId
+   * @return totals as monthly rollups of the user
+   */
+  public List<MonthlyRollup> toRollups(String userId) {
+    List<MonthlyRollup> rollups = new ArrayList<>();
+    forEach((month, category, sum, count, income, expense) -> rollups
+        .add(new MonthlyRollup(userId, toYearMonth(month).toString(), category, sum, count, income, expense)));
+    return rollups;
+  }
+
+  /**
+   * @param date
+   * @return months since the start of year 0
+   */
+  public static int month(LocalDate date) {
+    return date.getYear() * 12 + date.getMonthValue() - 1;
+  }
+
+  /**
+   * @param yearMonth
+   * @return months since the start of year 0
+   */
+  public static int month(YearMonth yearMonth) {
+    return yearMonth.getYear() * 12 + yearMonth.getMonthValue() - 1;
+  }
+
+  /**
+   * @param month months since the start of year 0
+   * @return year and month
+   */
+  public static YearMonth toYearMonth(int month) {
+    return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+  }
+
+  /**
+   * @param amount
+   * @return amount in cents, rounded half up to whole cents
+   */
+  public static long toCents(BigDecimal amount) {
+    if (amount.scale() > 2) {
+      amount = amount.setScale(2, RoundingMode.HALF_UP);
+    }
+    return amount.movePointRight(2).longValueExact();
+  }
+
+  private void add(int month, int categoryId, long sum, long count, long income, long expense) {
+    long[] row = row(month, categoryId);
+    int i = categoryId * FIELDS;
+    row[i + SUM] += sum;
+    row[i + COUNT] += count;
+    row[i + INCOME] += income;
+    row[i + EXPENSE] += expense;
+  }
+
+  /**
+   * Get the row of the month, making room for the month and category id
+   *
+   * @param month
+   * @param categoryId
+   * @return row
+   */
+  private long[] row(int month, int categoryId) {
+    if (rows.length == 0) {
+      firstMonth = month;
+      rows = new long[1][];
+    } else if (month < firstMonth) {
+      long[][] grown = new long[rows.length + firstMonth - month][];
+      System.arraycopy(rows, 0, grown, firstMonth - month, rows.length);
+      rows = grown;
+      firstMonth = month;
+    } else if (month - firstMonth >= rows.length) {
+      rows = Arrays.copyOf(rows, month - firstMonth + 1);
+    }
+
+    int m = month - firstMonth;
+    long[] row = rows[m];
+    if (row == null || row.length <= categoryId * FIELDS) {
+      long[] grown = new long[categories.length * FIELDS];
+      if (row != null) {
+        System.arraycopy(row, 0, grown, 0, row.length);
+      }
+      row = grown;
+      rows[m] = row;
+    }
+    return row;
+  }
+
+}
@@ -0,0 +1,125 @@
+package hh.sof03.mybudgetpal.statistics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import hh.sof03.mybudgetpal.domain.MerchantCount;
+
+/**
+ * Weighted Space-Saving sketch of the heaviest keys in a stream. At most
+ * capacity keys are counted. A new key takes the place of the key with the
+ * smallest count and starts from that count, which is kept as its error.
+ *
+ * A key's estimate is never below its true total and at most its error
+ * above it, and every key whose total is over 1/capacity of the stream's
+ * total weight is in the sketch.
+ */
+public class SpaceSavingSketch {
+
+  private static final Comparator<Counter> BY_COUNT = Comparator.comparingLong((Counter counter) -> counter.count)
+      .thenComparing(counter -> counter.key);
+
+  private final int capacity;
+
+  private final Map<String, Counter> counters = new HashMap<>();
+
+  // Counters from the smallest count, so the one to replace is found in log(capacity)
+  private final TreeSet<Counter> ordered = new TreeSet<>(BY_COUNT);
+
+  private static class Counter {
+
+    private final String key;
+
+    private long count;
+
+    private final long error;
+
+    private Counter(String key, long count, long error) {
+      this.key = key;
+      this.count = count;
+      this.error = error;
+    }
+
+  }
+
+  public SpaceSavingSketch(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be at least 1");
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * @param capacity
+   * @param counts stored counts of the sketch
+   */
+  public SpaceSavingSketch(int capacity, List<MerchantCount> counts) {
+    this(capacity);
+    for (MerchantCount count : counts) {
+      if (counters.size() == capacity) {
+        break;
+      }
+      put(new Counter(count.getTitle(), count.getCount(), count.getError()));
+    }
+  }
+
+  /**
+   * Add weight to the key
+   *
+   * @param key
+   * @param weight ignored unless positive
+   */
+  public void add(String key, long weight) {
+    if (weight <= 0) {
+      return;
+    }
+
+    Counter counter = counters.get(key);
+    if (counter != null) {
+      ordered.remove(counter);
+      counter.count += weight;
+      ordered.add(counter);
+      return;
+    }
+
+    if (counters.size() < capacity) {
+      put(new Counter(key, weight, 0));
+    } else {
+      Counter smallest = ordered.pollFirst();
+      counters.remove(smallest.key);
+      put(new Counter(key, smallest.count + weight, smallest.count));
+    }
+  }
+
+  /**
+   * @param n
+   * @return n keys with the largest counts, from the largest
+   */
+  public List<MerchantCount> top(int n) {
+    List<MerchantCount> top = new ArrayList<>(Math.min(n, counters.size()));
+    Iterator<Counter> iterator = ordered.descendingIterator();
+    while (top.size() < n && iterator.hasNext()) {
+      Counter counter = iterator.next();
+      top.add(new MerchantCount(counter.key, counter.count, counter.error));
+    }
+    return top;
+  }
+
+  /**
+   * @return all counts, from the largest
+   */
+  public List<MerchantCount> toCounts() {
+    return top(capacity);
+  }
+
+  private void put(Counter counter) {
+    counters.put(counter.key, counter);
+    ordered.add(counter);
+  }
+
+}
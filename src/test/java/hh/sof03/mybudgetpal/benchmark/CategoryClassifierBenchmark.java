@@ -0,0 +1,101 @@
+package hh.sof03.mybudgetpal.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hh.sof03.mybudgetpal.domain.Keyword;
+import hh.sof03.mybudgetpal.domain.KeywordType;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.LegacyCategoryMatcher;
+
+/**
+ * Compares categorizing the entries of one /api/statistics call with the old
+ * getCategories loops and with CategoryClassifier, including building the
+ * classifier.
+ *
+ * Run with: mvn -Pbenchmark test -Djmh.args="CategoryClassifierBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryClassifierBenchmark {
+
+	private static final String[] WORDS = { "k-market", "s-market", "prisma", "lidl", "alko", "hsl", "vr", "spotify",
+			"netflix", "elisa", "helen", "apteekki", "ravintola", "kahvila", "oy", "ab", "oyj", "helsinki",
+			"kamppi", "kallio", "töölö", "itäkeskus", "sörnäinen", "mobiili", "verkkokauppa", "posti", "r-kioski" };
+
+	@Param({ "20000" })
+	private int entries;
+
+	@Param({ "300" })
+	private int keywordStrings;
+
+	private List<String> titles;
+
+	private List<Keyword> keywords;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+
+		keywords = new ArrayList<>();
+		for (int i = 0; i < keywordStrings / 5; i++) {
+			List<String> strings = new ArrayList<>();
+			for (int j = 0; j < 5; j++) {
+				strings.add(words(random, 1 + random.nextInt(2)));
+			}
+			keywords.add(new Keyword(strings, "category " + i, KeywordType.INCLUDED, "user"));
+		}
+
+		titles = new ArrayList<>();
+		for (int i = 0; i < entries; i++) {
+			titles.add(words(random, 1 + random.nextInt(4)));
+		}
+	}
+
+	@Benchmark
+	public void legacyGetCategories(Blackhole blackhole) {
+		for (String title : titles) {
+			List<String> categories = LegacyCategoryMatcher.getCategories(title, keywords);
+			blackhole.consume(categories.isEmpty() ? null : categories.get(0));
+		}
+	}
+
+	@Benchmark
+	public void categoryClassifier(Blackhole blackhole) {
+		CategoryClassifier classifier = new CategoryClassifier(keywords, 0);
+		for (String title : titles) {
+			blackhole.consume(classifier.classify(title));
+		}
+	}
+
+	private static String words(Random random, int count) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				builder.append(' ');
+			}
+			builder.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return builder.toString();
+	}
+
+}
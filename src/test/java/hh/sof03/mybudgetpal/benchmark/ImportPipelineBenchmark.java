@@ -0,0 +1,337 @@
+package hh.sof03.mybudgetpal.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.Keyword;
+import hh.sof03.mybudgetpal.domain.KeywordType;
+import hh.sof03.mybudgetpal.domain.User;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.KeywordAutomaton;
+import hh.sof03.mybudgetpal.keywords.KeywordService;
+import hh.sof03.mybudgetpal.services.EntryBatchWriter;
+import hh.sof03.mybudgetpal.services.EntryCategoryService;
+import hh.sof03.mybudgetpal.services.FileImportStatus;
+import hh.sof03.mybudgetpal.services.ImportLogService;
+import hh.sof03.mybudgetpal.services.LedgerLocks;
+import hh.sof03.mybudgetpal.services.MerchantSketchService;
+import hh.sof03.mybudgetpal.services.MonthlyRollupService;
+import hh.sof03.mybudgetpal.services.StatementImportService;
+import hh.sof03.mybudgetpal.statements.BankStatementFormat;
+import hh.sof03.mybudgetpal.statements.BankStatementFormatRegistry;
+import hh.sof03.mybudgetpal.statements.OpStatementFormat;
+import hh.sof03.mybudgetpal.statements.SPankkiStatementFormat;
+import hh.sof03.mybudgetpal.statements.StatementRecord;
+import hh.sof03.mybudgetpal.statements.StatementRowDecoder;
+import hh.sof03.mybudgetpal.statements.StatementTokenizer;
+
+/**
+ * Throughput of the statement import path, stage by stage and end to end.
+ * The stages and the end to end run use the production classes, with
+ * InMemoryEntryStore standing in for the entries collection.
+ *
+ * - parse: tokenize the file and decode every row to an Entry
+ * - exclusion: check the titles against the excluded keywords
+ * - classify: categorize the titles with CategoryClassifier
+ * - persist: write the entries with EntryBatchWriter, which maps them to
+ *   BSON in batches and inserts them into the store
+ * - duplicates: write entries that are all stored already, so every batch
+ *   goes through EntryBatchWriter's duplicate-reject handling
+ * - endToEnd: StatementImportService.importStatement over the file, with
+ *   every other row already stored like a statement that overlaps the
+ *   previous one
+ *
+ * The rollups, merchant sketches and import log are stubbed, so their
+ * database writes are not measured.
+ *
+ * The rows counter is reported in rows/s and bytesPerRow is the heap
+ * allocated per row by the measuring thread.
+ *
+ * Run with: mvn -Pbenchmark test -Djmh.args="ImportPipelineBenchmark -p rows=100000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xms2g", "-Xmx2g" })
+public class ImportPipelineBenchmark {
+
+	private static final String USER_ID = "user";
+
+	private static final int BATCH_SIZE = 500;
+
+	private static final List<String> EXCLUDED_KEYWORDS = List.of("alko", "spotify", "ravintola", "oma tili");
+
+	private static final List<Keyword> KEYWORDS = List.of(
+			new Keyword(new ArrayList<>(List.of("k-market", "s-market", "prisma", "lidl")), "Groceries",
+					KeywordType.INCLUDED, USER_ID),
+			new Keyword(new ArrayList<>(List.of("hsl", "vr-yhtymä")), "Transport", KeywordType.INCLUDED, USER_ID),
+			new Keyword(new ArrayList<>(List.of("elisa", "helen")), "Bills", KeywordType.INCLUDED, USER_ID));
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	@Param({ "s-pankki", "op" })
+	private String bank;
+
+	@Param({ "1000", "100000", "1000000" })
+	private int rows;
+
+	private byte[] statement;
+
+	private BankStatementFormat format;
+
+	private String fileName;
+
+	private KeywordAutomaton excludedKeywords;
+
+	private CategoryClassifier classifier;
+
+	private List<Entry> entries;
+
+	private List<String> titles;
+
+	// Stores with no entries, with every entry and with every other entry, cleared before each use
+	private InMemoryEntryStore emptyStore;
+
+	private InMemoryEntryStore fullStore;
+
+	private InMemoryEntryStore overlappingStore;
+
+	private MongoTemplate emptyStoreTemplate;
+
+	private MongoTemplate fullStoreTemplate;
+
+	private StatementImportService statementImportService;
+
+	private User user;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class RowCounter {
+
+		public long rows;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rows = 0;
+		}
+
+	}
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class AllocationCounter {
+
+		private long bytes;
+
+		private long rows;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+			rows = 0;
+		}
+
+		void add(long allocatedBytes, long processedRows) {
+			bytes += allocatedBytes;
+			rows += processedRows;
+		}
+
+		public double bytesPerRow() {
+			return rows == 0 ? 0 : (double) bytes / rows;
+		}
+
+	}
+
+	@Setup
+	public void setUp() throws IOException {
+		if (bank.equals("op")) {
+			statement = SyntheticStatements.op(rows, 42);
+			format = new OpStatementFormat();
+			fileName = "op-statement.csv";
+		} else {
+			statement = SyntheticStatements.sPankki(rows, 42);
+			format = new SPankkiStatementFormat();
+			fileName = "s-pankki-statement.csv";
+		}
+		excludedKeywords = new KeywordAutomaton(EXCLUDED_KEYWORDS);
+		classifier = new CategoryClassifier(KEYWORDS, 0);
+
+		entries = new ArrayList<>(rows);
+		titles = new ArrayList<>(rows);
+		try (StatementTokenizer tokenizer = tokenizer()) {
+			tokenizer.nextRecord();
+			StatementRowDecoder decoder = format.decoder(tokenizer.record().fields());
+			while (tokenizer.nextRecord()) {
+				String title = decoder.title(tokenizer.record());
+				titles.add(title);
+				entries.add(decoder.decode(tokenizer.record(), title, USER_ID));
+			}
+		}
+
+		Set<String> allKeys = new HashSet<>();
+		for (Entry entry : entries) {
+			allKeys.add(InMemoryEntryStore.key(entry));
+		}
+		// Every other row is already stored, like a statement that overlaps the previous one
+		Set<String> storedKeys = new HashSet<>();
+		for (int i = 0; i < entries.size(); i += 2) {
+			storedKeys.add(InMemoryEntryStore.key(entries.get(i)));
+		}
+		emptyStore = new InMemoryEntryStore();
+		fullStore = new InMemoryEntryStore(allKeys);
+		overlappingStore = new InMemoryEntryStore(storedKeys);
+		emptyStoreTemplate = emptyStore.mongoTemplate();
+		fullStoreTemplate = fullStore.mongoTemplate();
+
+		user = new User("benchmark", "Bench", "Mark", "bench@example.com", "");
+		ReflectionTestUtils.setField(user, "id", USER_ID);
+		statementImportService = statementImportService();
+	}
+
+	private StatementImportService statementImportService() {
+		KeywordService keywordService = mock(KeywordService.class);
+		when(keywordService.getExcludedKeywordMatcher(USER_ID)).thenReturn(excludedKeywords);
+		when(keywordService.getCategoryClassifier(USER_ID)).thenReturn(classifier);
+		when(keywordService.getKeywordVersion(USER_ID)).thenReturn(classifier.getVersion());
+		ImportLogService importLogService = mock(ImportLogService.class);
+		when(importLogService.record(anyString(), any(FileImportStatus.class))).thenReturn(true);
+
+		StatementImportService service = new StatementImportService();
+		ReflectionTestUtils.setField(service, "mongoTemplate", overlappingStore.mongoTemplate());
+		ReflectionTestUtils.setField(service, "keywordService", keywordService);
+		ReflectionTestUtils.setField(service, "formatRegistry",
+				new BankStatementFormatRegistry(List.of(new SPankkiStatementFormat(), new OpStatementFormat())));
+		ReflectionTestUtils.setField(service, "importLogService", importLogService);
+		ReflectionTestUtils.setField(service, "entryCategoryService", mock(EntryCategoryService.class));
+		ReflectionTestUtils.setField(service, "monthlyRollupService", mock(MonthlyRollupService.class));
+		ReflectionTestUtils.setField(service, "merchantSketchService", mock(MerchantSketchService.class));
+		ReflectionTestUtils.setField(service, "ledgerLocks", new LedgerLocks());
+		ReflectionTestUtils.setField(service, "importBatchSize", BATCH_SIZE);
+		ReflectionTestUtils.setField(service, "bankDetectionLookahead", 200);
+		ReflectionTestUtils.setField(service, "maxRowsPerFile", Integer.MAX_VALUE);
+		return service;
+	}
+
+	@Benchmark
+	public void parse(RowCounter counter, AllocationCounter allocation, Blackhole blackhole) throws IOException {
+		long allocatedBefore = allocatedBytes();
+		try (StatementTokenizer tokenizer = tokenizer()) {
+			tokenizer.nextRecord();
+			StatementRowDecoder decoder = format.decoder(tokenizer.record().fields());
+			while (tokenizer.nextRecord()) {
+				StatementRecord record = tokenizer.record();
+				blackhole.consume(decoder.decode(record, decoder.title(record), USER_ID));
+			}
+		}
+		finish(counter, allocation, allocatedBefore);
+	}
+
+	@Benchmark
+	public int exclusion(RowCounter counter, AllocationCounter allocation) {
+		long allocatedBefore = allocatedBytes();
+		int excluded = 0;
+		for (String title : titles) {
+			if (excludedKeywords.containsAny(title)) {
+				excluded++;
+			}
+		}
+		finish(counter, allocation, allocatedBefore);
+		return excluded;
+	}
+
+	@Benchmark
+	public int classify(RowCounter counter, AllocationCounter allocation, Blackhole blackhole) {
+		long allocatedBefore = allocatedBytes();
+		for (Entry entry : entries) {
+			blackhole.consume(classifier.categorize(entry.getTitle(), entry.getAmount()));
+		}
+		finish(counter, allocation, allocatedBefore);
+		return entries.size();
+	}
+
+	@Benchmark
+	public long persist(RowCounter counter, AllocationCounter allocation) {
+		long allocatedBefore = allocatedBytes();
+		emptyStore.clear();
+		try (EntryBatchWriter writer = new EntryBatchWriter(emptyStoreTemplate, BATCH_SIZE)) {
+			for (Entry entry : entries) {
+				writer.add(entry);
+			}
+			writer.flush();
+		}
+		finish(counter, allocation, allocatedBefore);
+		return emptyStore.getEncodedBytes();
+	}
+
+	@Benchmark
+	public int duplicates(RowCounter counter, AllocationCounter allocation) {
+		long allocatedBefore = allocatedBytes();
+		fullStore.clear();
+		EntryBatchWriter writer = new EntryBatchWriter(fullStoreTemplate, BATCH_SIZE);
+		for (Entry entry : entries) {
+			writer.add(entry);
+		}
+		writer.flush();
+		finish(counter, allocation, allocatedBefore);
+		return writer.getDuplicateCount();
+	}
+
+	@Benchmark
+	public int endToEnd(RowCounter counter, AllocationCounter allocation) throws IOException {
+		long allocatedBefore = allocatedBytes();
+		overlappingStore.clear();
+		FileImportStatus status = new FileImportStatus(fileName);
+
+		statementImportService.importStatement(ByteBuffer.wrap(statement), "sha256", fileName, user, status);
+
+		finish(counter, allocation, allocatedBefore);
+		return status.getInserted();
+	}
+
+	private StatementTokenizer tokenizer() {
+		return new StatementTokenizer(ByteBuffer.wrap(statement), StandardCharsets.UTF_8);
+	}
+
+	private void finish(RowCounter counter, AllocationCounter allocation, long allocatedBefore) {
+		counter.rows += rows;
+		allocation.add(allocatedBytes() - allocatedBefore, rows);
+	}
+
+	private static long allocatedBytes() {
+		return THREADS.getCurrentThreadAllocatedBytes();
+	}
+
+}
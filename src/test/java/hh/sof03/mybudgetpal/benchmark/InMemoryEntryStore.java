@@ -0,0 +1,194 @@
+package hh.sof03.mybudgetpal.benchmark;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+/**
+ * Stand-in for the entries collection in the benchmarks. Inserting a batch
+ * does the client side work of a bulk insert: the entries are mapped to
+ * documents with the same converter MongoTemplate uses and encoded to BSON.
+ * The unique index on (user_id, bank_name, reference_id) is emulated with a
+ * hash set, so duplicates are rejected like in Mongo. No server round trips
+ * are included.
+ *
+ * {@link #mongoTemplate()} gives a MongoTemplate whose unordered bulk
+ * inserts of entries go to the store, so EntryBatchWriter and
+ * StatementImportService can be run against it. Duplicates fail the bulk
+ * write with the same BulkOperationException Mongo would cause.
+ */
+public class InMemoryEntryStore {
+
+	private static final MappingMongoConverter CONVERTER = createConverter();
+
+	private static final DocumentCodec CODEC = new DocumentCodec();
+
+	private static final int DUPLICATE_KEY = 11000;
+
+	private final Set<String> existingKeys;
+
+	private final Set<String> insertedKeys = new HashSet<>();
+
+	private final BasicOutputBuffer buffer = new BasicOutputBuffer();
+
+	private long encodedBytes = 0;
+
+	/**
+	 * @param existingKeys keys of entries that are already stored, see
+	 *                     {@link #key(Entry)}; not modified
+	 */
+	public InMemoryEntryStore(Set<String> existingKeys) {
+		this.existingKeys = existingKeys;
+	}
+
+	public InMemoryEntryStore() {
+		this(Collections.emptySet());
+	}
+
+	/**
+	 * Insert a batch of entries
+	 *
+	 * @param entries
+	 * @return number of inserted entries, the rest were duplicates
+	 */
+	public int insert(List<Entry> entries) {
+		return entries.size() - insertRejecting(entries).size();
+	}
+
+	/**
+	 * Insert a batch of entries like an unordered bulk insert
+	 *
+	 * @param entries
+	 * @return indexes of the entries rejected as duplicates
+	 */
+	public List<Integer> insertRejecting(List<Entry> entries) {
+		List<Integer> rejected = new ArrayList<>();
+		buffer.truncateToPosition(0);
+
+		for (int i = 0; i < entries.size(); i++) {
+			Entry entry = entries.get(i);
+			String key = key(entry);
+			if (existingKeys.contains(key) || !insertedKeys.add(key)) {
+				rejected.add(i);
+				continue;
+			}
+			Document document = new Document();
+			CONVERTER.write(entry, document);
+			document.putIfAbsent("_id", new ObjectId());
+			CODEC.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+		}
+
+		encodedBytes += buffer.getPosition();
+		return rejected;
+	}
+
+	/**
+	 * @return MongoTemplate whose bulk inserts of entries go to this store;
+	 *         other operations do nothing
+	 */
+	@SuppressWarnings("unchecked")
+	public MongoTemplate mongoTemplate() {
+		// EntryBatchWriter inserts and executes each batch before it asks for the next one
+		List<Entry> batch = new ArrayList<>();
+		// Stub only, so the mocks do not keep every invocation and its entries for verification
+		BulkOperations bulkOperations = mock(BulkOperations.class, withSettings().stubOnly());
+		when(bulkOperations.insert(anyList())).thenAnswer(insert -> {
+			batch.addAll(insert.getArgument(0, List.class));
+			return bulkOperations;
+		});
+		when(bulkOperations.execute()).thenAnswer(execute -> {
+			try {
+				return execute(batch);
+			} finally {
+				batch.clear();
+			}
+		});
+
+		MongoTemplate mongoTemplate = mock(MongoTemplate.class, withSettings().stubOnly());
+		when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class)).thenReturn(bulkOperations);
+		return mongoTemplate;
+	}
+
+	private BulkWriteResult execute(List<Entry> batch) {
+		List<Integer> rejected = insertRejecting(batch);
+		BulkWriteResult result = BulkWriteResult.acknowledged(batch.size() - rejected.size(), 0, 0, 0,
+				Collections.emptyList(), Collections.emptyList());
+		if (rejected.isEmpty()) {
+			return result;
+		}
+		List<BulkWriteError> errors = new ArrayList<>(rejected.size());
+		for (int index : rejected) {
+			errors.add(new BulkWriteError(DUPLICATE_KEY, "E11000 duplicate key error", new BsonDocument(), index));
+		}
+		throw new BulkOperationException("Duplicate entries",
+				new MongoBulkWriteException(result, errors, null, new ServerAddress()));
+	}
+
+	/**
+	 * Remove the inserted entries, keeping the existing ones
+	 */
+	public void clear() {
+		insertedKeys.clear();
+		encodedBytes = 0;
+	}
+
+	/**
+	 * @return total size of the encoded documents
+	 */
+	public long getEncodedBytes() {
+		return encodedBytes;
+	}
+
+	/**
+	 * Key of the entry in the unique index
+	 *
+	 * @param entry
+	 * @return key
+	 */
+	public static String key(Entry entry) {
+		return entry.getUserId() + '\u0000' + entry.getBankName() + '\u0000' + entry.getReferenceId();
+	}
+
+	private static MappingMongoConverter createConverter() {
+		MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		mappingContext.afterPropertiesSet();
+
+		MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		return converter;
+	}
+
+}
@@ -0,0 +1,123 @@
+package hh.sof03.mybudgetpal.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.statements.BankStatementFormat;
+import hh.sof03.mybudgetpal.statements.SPankkiStatementFormat;
+import hh.sof03.mybudgetpal.statements.StatementRecord;
+import hh.sof03.mybudgetpal.statements.StatementRowDecoder;
+import hh.sof03.mybudgetpal.statements.StatementTokenizer;
+
+/**
+ * Compares the statement parsing of the old processStatementFile loop with
+ * StatementTokenizer and the precompiled S-pankki format decoder. Both turn
+ * every row of the file into an Entry.
+ *
+ * Run with: mvn -Pbenchmark test -Djmh.args="StatementParsingBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementParsingBenchmark {
+
+	@Param({ "100000" })
+	private int rows;
+
+	private byte[] statement;
+
+	private final BankStatementFormat format = new SPankkiStatementFormat();
+
+	@Setup
+	public void setUp() {
+		statement = SyntheticStatements.sPankki(rows, 42);
+	}
+
+	@Benchmark
+	public void legacyScannerSplit(Blackhole blackhole) {
+		String bankName = "s-pankki";
+		try (Scanner scanner = new Scanner(new ByteArrayInputStream(statement), StandardCharsets.UTF_8)) {
+			String[] headers = scanner.nextLine().split(";");
+			Map<String, Integer> columnIndex = legacyMapColumnIndexes(headers);
+			while (scanner.hasNext()) {
+				String line = scanner.nextLine();
+				String[] columns = line.split(";");
+				String date = columns[columnIndex.get("date")].replace(".",
+						"-").replace("\"", "");
+				LocalDate formattedDate = LocalDate.parse(date, DateTimeFormatter.ofPattern("dd-MM-yyyy"));
+				BigDecimal amount = new BigDecimal(columns[columnIndex.get("amount")].replace(",", "."));
+				String title = columns[columnIndex.get("title")].toLowerCase().replace("\"",
+						"");
+				String referenceId = columns[columnIndex.get("referenceId")].replace("\"",
+						"");
+				bankName = bankName.toLowerCase();
+
+				title = title.replaceAll("\\s{2,}", " ");
+
+				blackhole.consume(new Entry(formattedDate, amount, title, bankName, referenceId, "user"));
+			}
+		}
+	}
+
+	@Benchmark
+	public void statementTokenizer(Blackhole blackhole) throws IOException {
+		try (StatementTokenizer tokenizer = new StatementTokenizer(
+				new InputStreamReader(new ByteArrayInputStream(statement), StandardCharsets.UTF_8))) {
+			tokenizer.nextRecord();
+			StatementRowDecoder decoder = format.decoder(tokenizer.record().fields());
+
+			while (tokenizer.nextRecord()) {
+				StatementRecord record = tokenizer.record();
+				blackhole.consume(decoder.decode(record, decoder.title(record), "user"));
+			}
+		}
+	}
+
+	private static Map<String, Integer> legacyMapColumnIndexes(String[] headers) {
+		Map<String, Integer> columnIndex = new HashMap<>();
+
+		for (int i = 0; i < headers.length; i++) {
+			String header = headers[i].trim().toLowerCase();
+			if (header.contains("kirjauspäivä") || header.contains("päivämäärä")) {
+				columnIndex.put("date", i);
+			} else if (header.contains("summa") || header.contains("määrä")) {
+				columnIndex.put("amount", i);
+			} else if (header.contains("saaja/maksaja") || header.equals("saajan nimi")) {
+				columnIndex.put("title", i);
+			} else if (header.contains("arkistointitunnus")) {
+				columnIndex.put("referenceId", i);
+			} else if (header.contains("bic")) {
+				columnIndex.put("bic", i);
+			}
+		}
+
+		return columnIndex;
+	}
+
+}
@@ -0,0 +1,99 @@
+package hh.sof03.mybudgetpal.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.statistics.LedgerAggregator;
+
+/**
+ * Compares totalling a ledger per category and month with the old
+ * /api/statistics loop, which accumulated doubles into boxed HashMaps, and
+ * with LedgerAggregator. Run with -prof gc to see the allocation per
+ * operation (gc.alloc.rate.norm).
+ *
+ * Run with: mvn -Pbenchmark test -Djmh.args="StatisticsAggregationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatisticsAggregationBenchmark {
+
+	private static final int CATEGORIES = 40;
+
+	@Param({ "100000" })
+	private int entries;
+
+	private List<Entry> ledger;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		ledger = new ArrayList<>(entries);
+		for (int i = 0; i < entries; i++) {
+			Entry entry = new Entry(LocalDate.of(2019 + random.nextInt(6), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+					BigDecimal.valueOf(random.nextInt(400000) - 300000, 2), "title " + i, "S-Pankki", "ref" + i, "user");
+			entry.setCategory("category " + random.nextInt(CATEGORIES));
+			ledger.add(entry);
+		}
+	}
+
+	@Benchmark
+	public Map<String, Object> legacyDoubleMaps() {
+		Map<String, Double> categoryExpenses = new HashMap<>();
+		Map<String, Map<String, Double>> monthlyExpenses = new HashMap<>();
+		double balance = 0.0;
+
+		for (Entry entry : ledger) {
+			String category = entry.getCategory();
+			double amount = entry.getAmount().doubleValue();
+			balance += amount;
+
+			categoryExpenses.put(category, categoryExpenses.getOrDefault(category, 0.0) + amount);
+
+			String month = entry.getDate().getMonth().toString();
+			monthlyExpenses.putIfAbsent(month, new HashMap<>());
+			monthlyExpenses.get(month).put(category, monthlyExpenses.get(month).getOrDefault(category, 0.0) + amount);
+		}
+
+		categoryExpenses.replaceAll((k, v) -> Math.round(v * 100.0) / 100.0);
+		monthlyExpenses.forEach((month, categories) -> categories.replaceAll((k, v) -> Math.round(v * 100.0) / 100.0));
+
+		Map<String, Object> response = new HashMap<>();
+		response.put("categoryExpenses", categoryExpenses);
+		response.put("monthlyExpenses", monthlyExpenses);
+		response.put("balance", Math.round(balance * 100.0) / 100.0);
+		return response;
+	}
+
+	@Benchmark
+	public LedgerAggregator ledgerAggregator() {
+		LedgerAggregator aggregator = new LedgerAggregator();
+		for (Entry entry : ledger) {
+			aggregator.add(entry.getDate(), entry.getCategory(), entry.getAmount());
+		}
+		return aggregator;
+	}
+
+}
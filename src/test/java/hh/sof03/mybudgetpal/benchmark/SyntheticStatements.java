@@ -0,0 +1,116 @@
+package hh.sof03.mybudgetpal.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Generates bank statement files for the benchmarks
+ */
+public class SyntheticStatements {
+
+	public static final String S_PANKKI_HEADER = "Kirjauspäivä;Maksupäivä;Summa;Tapahtumalaji;Maksaja;Saajan nimi;"
+			+ "Saajan tilinumero;Saajan BIC-tunnus;Viitenumero;Viesti;Arkistointitunnus";
+
+	public static final String OP_HEADER = "Kirjauspäivä;Arvopäivä;Määrä EUROA;Laji;Selitys;Saaja/Maksaja;"
+			+ "Saajan tilinumero;Saajan pankin BIC;Viite;Viesti;Arkistointitunnus";
+
+	private static final String[] MERCHANTS = { "K-Market Kamppi", "S-Market  Sörnäinen", "Prisma Itäkeskus",
+			"HSL Mobiili", "Alko Oy", "Lidl Helsinki Kallio", "Spotify AB", "Elisa Oyj", "Helen Oy",
+			"Ravintola \"Kulma\"", "Apteekki Töölö", "VR-Yhtymä Oyj" };
+
+	private static final DateTimeFormatter S_PANKKI_DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+	private static final DateTimeFormatter OP_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+	private SyntheticStatements() {
+	}
+
+	/**
+	 * Generate an S-pankki statement export
+	 *
+	 * @param rows number of transaction rows
+	 * @param seed random seed
+	 * @return file content as UTF-8 bytes
+	 */
+	public static byte[] sPankki(int rows, long seed) {
+		Random random = new Random(seed);
+		StringBuilder builder = new StringBuilder(rows * 150);
+		builder.append(S_PANKKI_HEADER).append("\r\n");
+
+		LocalDate date = LocalDate.of(2024, 1, 1);
+		for (int i = 0; i < rows; i++) {
+			if (random.nextInt(8) == 0) {
+				date = date.plusDays(1);
+			}
+			String day = date.format(S_PANKKI_DATE);
+			boolean income = random.nextInt(20) == 0;
+			long cents = income ? 100_000 + random.nextInt(300_000) : -(100 + random.nextInt(20_000));
+			String merchant = income ? "Työnantaja Oy" : MERCHANTS[random.nextInt(MERCHANTS.length)];
+
+			builder.append(day).append(';')
+					.append(day).append(';')
+					.append(formatAmount(cents, true)).append(';')
+					.append(income ? "PALKKA" : "KORTTIOSTO").append(';')
+					.append("MEIKÄLÄINEN MATTI").append(';')
+					.append('"').append(merchant.replace("\"", "\"\"")).append('"').append(';')
+					.append("FI49 5000 9420 0287 30").append(';')
+					.append("SBANFIHH").append(';')
+					.append(';')
+					.append("Viesti ").append(i).append(';')
+					.append(date.getYear()).append(String.format("%02d%02d", date.getMonthValue(), date.getDayOfMonth()))
+					.append("/59349").append(i)
+					.append("\r\n");
+		}
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Generate an OP statement export
+	 *
+	 * @param rows number of transaction rows
+	 * @param seed random seed
+	 * @return file content as UTF-8 bytes
+	 */
+	public static byte[] op(int rows, long seed) {
+		Random random = new Random(seed);
+		StringBuilder builder = new StringBuilder(rows * 150);
+		builder.append(OP_HEADER).append("\n");
+
+		LocalDate date = LocalDate.of(2024, 1, 1);
+		for (int i = 0; i < rows; i++) {
+			if (random.nextInt(8) == 0) {
+				date = date.plusDays(1);
+			}
+			String day = date.format(OP_DATE);
+			boolean income = random.nextInt(20) == 0;
+			long cents = income ? 100_000 + random.nextInt(300_000) : -(100 + random.nextInt(20_000));
+			String merchant = income ? "TYÖNANTAJA OY" : MERCHANTS[random.nextInt(MERCHANTS.length)].toUpperCase();
+
+			builder.append(day).append(';')
+					.append(day).append(';')
+					.append(formatAmount(cents, false)).append(';')
+					.append(income ? "710" : "162").append(';')
+					.append(income ? "PALKKA" : "PKORTTIMAKSU").append(';')
+					.append('"').append(merchant.replace("\"", "\"\"")).append('"').append(';')
+					.append("FI21 1234 5600 0007 85").append(';')
+					.append("OKOYFIHH").append(';')
+					.append(income ? "" : "00000000000000001236").append(';')
+					.append("'Viesti ").append(i).append("'").append(';')
+					.append(date.getYear()).append(String.format("%02d%02d", date.getMonthValue(), date.getDayOfMonth()))
+					.append("/5ATS0A/").append(i)
+					.append("\n");
+		}
+
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String formatAmount(long cents, boolean signed) {
+		long abs = Math.abs(cents);
+		String sign = cents < 0 ? "-" : signed ? "+" : "";
+		return sign + abs / 100 + "," + String.format("%02d", abs % 100);
+	}
+
+}
@@ -0,0 +1,120 @@
+package hh.sof03.mybudgetpal.keywords;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hh.sof03.mybudgetpal.domain.Keyword;
+import hh.sof03.mybudgetpal.domain.KeywordType;
+
+class CategoryClassifierTests {
+
+	private static final String[] WORDS = { "k", "market", "k-market", "alko", "oy", "ab", "s", "prisma", "hsl",
+			"Kamppi", "ravintola", "" };
+
+	private static final String[] SEPARATORS = { " ", " ", " ", "  ", "\t", "" };
+
+	@Test
+	void firstTieWinsOverLaterHigherScore() {
+		List<Keyword> keywords = List.of(
+				new Keyword(new ArrayList<>(List.of("market")), "groceries", KeywordType.INCLUDED, "user"),
+				new Keyword(new ArrayList<>(List.of("kamppi")), "city", KeywordType.INCLUDED, "user"),
+				new Keyword(new ArrayList<>(List.of("k market kamppi")), "exact", KeywordType.INCLUDED, "user"),
+				new Keyword(new ArrayList<>(List.of("market kamppi")), "both", KeywordType.INCLUDED, "user"));
+		CategoryClassifier classifier = new CategoryClassifier(keywords, 0);
+
+		assertEquals("exact", classifier.classify("K Market Kamppi"));
+		assertEquals("city", classifier.classify("s market kamppi"));
+		assertNull(classifier.classify("alko"));
+		assertNull(classifier.classify(null));
+	}
+
+	@Test
+	void ignoresBlankKeywordStrings() {
+		List<Keyword> keywords = List.of(
+				new Keyword(new ArrayList<>(List.of("alko", "", " ")), "drinks", KeywordType.INCLUDED, "user"));
+		CategoryClassifier classifier = new CategoryClassifier(keywords, 0);
+
+		assertEquals("drinks", classifier.classify("alko kamppi"));
+		assertNull(classifier.classify("hsl"));
+
+		KeywordAutomaton automaton = new KeywordAutomaton(keywords.get(0).getKeywords());
+		assertTrue(automaton.containsAny("alko kamppi"));
+		assertFalse(automaton.containsAny("hsl"));
+	}
+
+	@Test
+	void splitsWordsLikeStringSplit() {
+		for (String text : List.of("", " ", "a", " a", "a ", "  a  b\t\tc ", "\u000Ba\fb\r\n")) {
+			assertArrayEquals(text.split("\\s+"), CategoryClassifier.splitWords(text), "'" + text + "'");
+		}
+	}
+
+	@Test
+	void choosesSameCategoryAsLegacyRules() {
+		Random random = new Random(7);
+
+		for (int round = 0; round < 300; round++) {
+			List<Keyword> keywords = new ArrayList<>();
+			int keywordCount = 1 + random.nextInt(6);
+			for (int i = 0; i < keywordCount; i++) {
+				List<String> strings = new ArrayList<>();
+				int stringCount = 1 + random.nextInt(4);
+				for (int j = 0; j < stringCount; j++) {
+					strings.add(randomText(random, 1 + random.nextInt(3)));
+				}
+				keywords.add(new Keyword(strings, "category" + random.nextInt(5), KeywordType.INCLUDED, "user"));
+			}
+			CategoryClassifier classifier = new CategoryClassifier(keywords, 0);
+
+			for (int i = 0; i < 200; i++) {
+				String title = randomText(random, random.nextInt(6));
+				List<String> legacy = LegacyCategoryMatcher.getCategories(title, withoutBlankStrings(keywords));
+				assertEquals(legacy.isEmpty() ? null : legacy.get(0), classifier.classify(title),
+						"title '" + title + "' with keywords " + describe(keywords));
+			}
+		}
+	}
+
+	private static String randomText(Random random, int words) {
+		StringBuilder builder = new StringBuilder();
+		if (random.nextInt(10) == 0) {
+			builder.append(' ');
+		}
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				builder.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+			}
+			builder.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return builder.toString();
+	}
+
+	// The legacy rules found a blank keyword string in every title, the classifier leaves them out
+	private static List<Keyword> withoutBlankStrings(List<Keyword> keywords) {
+		List<Keyword> result = new ArrayList<>();
+		for (Keyword keyword : keywords) {
+			List<String> strings = new ArrayList<>(keyword.getKeywords());
+			strings.removeIf(String::isBlank);
+			result.add(new Keyword(strings, keyword.getCategory(), keyword.getType(), keyword.getUserId()));
+		}
+		return result;
+	}
+
+	private static String describe(List<Keyword> keywords) {
+		StringBuilder builder = new StringBuilder();
+		for (Keyword keyword : keywords) {
+			builder.append(keyword.getCategory()).append('=').append(keyword.getKeywords()).append(' ');
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,84 @@
+package hh.sof03.mybudgetpal.keywords;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import hh.sof03.mybudgetpal.domain.Keyword;
+
+/**
+ * The category rules StatisticController used before CategoryClassifier,
+ * kept as the reference for the equivalence test and the benchmark
+ */
+public class LegacyCategoryMatcher {
+
+	private LegacyCategoryMatcher() {
+	}
+
+	/**
+	 * Get suitable categories for the keyword
+	 *
+	 * @param keyword
+	 * @param allKeywords
+	 * @return List<String> of suitable categories for the keyword
+	 */
+	public static List<String> getCategories(String keyword, List<Keyword> allKeywords) {
+		ArrayList<String> suitableCategories = new ArrayList<>();
+		ArrayList<String> exactMatchCategories = new ArrayList<>();
+		ArrayList<String> commonWordCategories = new ArrayList<>();
+
+		if (keyword == null || keyword.isEmpty()) {
+			return suitableCategories;
+		}
+
+		keyword = keyword.toLowerCase();
+		String bestCategory = null;
+		int mostCommonWords = -1;
+
+		for (Keyword keywordEntity : allKeywords) {
+			for (String title : keywordEntity.getKeywords()) {
+				title = title.toLowerCase();
+
+				if (keyword.equals(title)) {
+					exactMatchCategories.add(keywordEntity.getCategory());
+					continue;
+				} else if (keyword.contains(title)) {
+					int commonWordCount = countCommonWords(keyword, title);
+					if (commonWordCount > mostCommonWords) {
+						mostCommonWords = commonWordCount;
+						bestCategory = keywordEntity.getCategory();
+					} else if (commonWordCount == mostCommonWords) {
+						commonWordCategories.add(keywordEntity.getCategory());
+					}
+				}
+			}
+		}
+
+		suitableCategories.addAll(exactMatchCategories);
+
+		if (!commonWordCategories.isEmpty()) {
+			suitableCategories.addAll(commonWordCategories);
+		}
+
+		if (bestCategory != null) {
+			suitableCategories.add(bestCategory);
+		}
+
+		return suitableCategories;
+	}
+
+	private static int countCommonWords(String keyword, String title) {
+		String[] keywords = keyword.split("\\s+");
+		String[] titleWords = title.split("\\s+");
+		int matchCount = 0;
+		for (String word : keywords) {
+			for (String titleWord : titleWords) {
+				if (word.equals(titleWord)) {
+					matchCount++;
+					break;
+				}
+			}
+		}
+		return matchCount;
+	}
+
+}
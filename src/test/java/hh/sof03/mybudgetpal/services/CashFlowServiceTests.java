@@ -0,0 +1,142 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.aggregation.TypeBasedAggregationOperationContext;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+class CashFlowServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final CashFlowService cashFlowService = new CashFlowService();
+
+	private TypedAggregation<?> aggregation;
+
+	private List<Document> results = List.of();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	void setUp() {
+		ReflectionTestUtils.setField(cashFlowService, "mongoTemplate", mongoTemplate);
+		when(mongoTemplate.aggregate(any(TypedAggregation.class), eq(Document.class))).thenAnswer(invocation -> {
+			aggregation = invocation.getArgument(0);
+			return new AggregationResults<>(results, new Document());
+		});
+	}
+
+	/**
+	 * Render the pipeline with the entry mapping, like MongoTemplate does
+	 */
+	private List<Document> pipeline() {
+		MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+		MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+		converter.setCustomConversions(conversions);
+		converter.afterPropertiesSet();
+		return aggregation.toPipeline(
+				new TypeBasedAggregationOperationContext(Entry.class, mappingContext, new QueryMapper(converter)));
+	}
+
+	private static Date startOfDay(LocalDate date) {
+		return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	@Test
+	void groupsEntriesByWeekStartingOnMonday() {
+		cashFlowService.getTimeSeries("user", CashFlowService.Bucket.WEEK, LocalDate.of(2024, 1, 1),
+				LocalDate.of(2024, 3, 31));
+
+		List<Document> pipeline = pipeline();
+		assertEquals(4, pipeline.size());
+
+		Document match = pipeline.get(0).get("$match", Document.class);
+		assertEquals("user", match.get("user_id"));
+		assertEquals(new Document("$gte", startOfDay(LocalDate.of(2024, 1, 1)))
+				.append("$lte", startOfDay(LocalDate.of(2024, 3, 31))), match.get("date"));
+
+		Document dateTrunc = pipeline.get(1).get("$project", Document.class).get("start", Document.class)
+				.get("$dateTrunc", Document.class);
+		assertEquals("$date", dateTrunc.get("date"));
+		assertEquals("week", dateTrunc.get("unit"));
+		assertEquals(ZoneId.systemDefault().getId(), dateTrunc.get("timezone"));
+		assertEquals("monday", dateTrunc.get("startOfWeek"));
+
+		Document group = pipeline.get(2).get("$group", Document.class);
+		assertEquals("$start", group.get("_id"));
+		assertEquals(new Document("$sum", "$amount"), group.get("net"));
+		assertEquals(new Document("$sum", 1), group.get("count"));
+		assertEquals(new Document("$sum", new Document("$cond", new Document("if",
+				new Document("$gte", List.of("$amount", 0))).append("then", "$amount").append("else", 0))),
+				group.get("income"));
+
+		assertEquals(new Document("$sort", new Document("_id", 1)), pipeline.get(3));
+	}
+
+	@Test
+	void monthBucketsHaveNoStartOfWeek() {
+		cashFlowService.getTimeSeries("user", CashFlowService.Bucket.MONTH, null, null);
+
+		List<Document> pipeline = pipeline();
+		assertEquals(new Document("user_id", "user"), pipeline.get(0).get("$match"));
+		Document dateTrunc = pipeline.get(1).get("$project", Document.class).get("start", Document.class)
+				.get("$dateTrunc", Document.class);
+		assertEquals("month", dateTrunc.get("unit"));
+		assertEquals(false, dateTrunc.containsKey("startOfWeek"));
+	}
+
+	@Test
+	void mapsDecimalAndZeroSumsToBuckets() {
+		results = List.of(
+				new Document("_id", startOfDay(LocalDate.of(2024, 1, 1)))
+						.append("income", new Decimal128(new BigDecimal("2500.5")))
+						.append("expense", new Decimal128(new BigDecimal("-120.255")))
+						.append("net", new Decimal128(new BigDecimal("2380.245")))
+						.append("count", 3),
+				// Only expenses, so the income sum of the cond's 0 is an integer
+				new Document("_id", startOfDay(LocalDate.of(2024, 2, 1)))
+						.append("income", 0)
+						.append("expense", new Decimal128(new BigDecimal("-9.90")))
+						.append("net", new Decimal128(new BigDecimal("-9.90")))
+						.append("count", 1));
+
+		List<CashFlowBucket> buckets = cashFlowService.getTimeSeries("user", CashFlowService.Bucket.MONTH, null, null);
+
+		assertEquals(2, buckets.size());
+		assertEquals(LocalDate.of(2024, 1, 1), buckets.get(0).getStart());
+		assertEquals(new BigDecimal("2500.50"), buckets.get(0).getIncome());
+		assertEquals(new BigDecimal("-120.26"), buckets.get(0).getExpense());
+		assertEquals(new BigDecimal("2380.25"), buckets.get(0).getNet());
+		assertEquals(3, buckets.get(0).getCount());
+		assertEquals(LocalDate.of(2024, 2, 1), buckets.get(1).getStart());
+		assertEquals(new BigDecimal("0.00"), buckets.get(1).getIncome());
+		assertEquals(new BigDecimal("-9.90"), buckets.get(1).getExpense());
+		assertEquals(1, buckets.get(1).getCount());
+	}
+
+}
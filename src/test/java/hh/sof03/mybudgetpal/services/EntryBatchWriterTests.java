@@ -0,0 +1,59 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+class EntryBatchWriterTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final BulkOperations bulkOperations = mock(BulkOperations.class);
+
+	@BeforeEach
+	void setUp() {
+		BulkWriteResult result = mock(BulkWriteResult.class);
+		when(result.getInsertedCount()).thenReturn(2);
+		when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class)).thenReturn(bulkOperations);
+		when(bulkOperations.execute()).thenReturn(result);
+	}
+
+	@Test
+	void closeDiscardsBatchThatWasNotFlushed() {
+		try (EntryBatchWriter writer = new EntryBatchWriter(mongoTemplate, 2)) {
+			writer.add(new Entry());
+			writer.add(new Entry());
+			writer.add(new Entry());
+			// Left by an exception before the last batch is flushed
+		}
+
+		verify(bulkOperations, times(1)).insert(anyList());
+	}
+
+	@Test
+	void flushWritesLastBatch() {
+		EntryBatchWriter writer = new EntryBatchWriter(mongoTemplate, 2);
+		writer.add(new Entry());
+		writer.add(new Entry());
+		writer.add(new Entry());
+		writer.flush();
+		writer.close();
+
+		verify(bulkOperations, times(2)).insert(anyList());
+		assertEquals(2, writer.getBatchCount());
+	}
+
+}
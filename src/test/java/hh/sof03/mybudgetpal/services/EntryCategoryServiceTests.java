@@ -0,0 +1,101 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.mongodb.bulk.BulkWriteResult;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.Keyword;
+import hh.sof03.mybudgetpal.domain.KeywordType;
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.KeywordService;
+
+class EntryCategoryServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final KeywordService keywordService = mock(KeywordService.class);
+
+	private final MonthlyRollupService monthlyRollupService = mock(MonthlyRollupService.class);
+
+	private final BulkOperations bulkOperations = mock(BulkOperations.class);
+
+	private final EntryCategoryService entryCategoryService = new EntryCategoryService();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(entryCategoryService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(entryCategoryService, "keywordService", keywordService);
+		ReflectionTestUtils.setField(entryCategoryService, "monthlyRollupService", monthlyRollupService);
+		ReflectionTestUtils.setField(entryCategoryService, "ledgerLocks", new LedgerLocks());
+		ReflectionTestUtils.setField(entryCategoryService, "batchSize", 500);
+		entryCategoryService.init();
+
+		List<Keyword> keywords = List.of(
+				new Keyword(new ArrayList<>(List.of("alko")), "food", KeywordType.INCLUDED, "user"));
+		when(keywordService.getCategoryClassifier("user")).thenReturn(new CategoryClassifier(keywords, 0));
+		when(mongoTemplate.bulkOps(BulkMode.UNORDERED, Entry.class)).thenReturn(bulkOperations);
+	}
+
+	@AfterEach
+	void tearDown() {
+		entryCategoryService.shutdown();
+	}
+
+	@Test
+	void entryDeletedBeforeItsUpdateIsNotMovedInRollups() {
+		Entry kept = entry("1", LocalDate.of(2024, 1, 10));
+		Entry deleted = entry("2", LocalDate.of(2024, 2, 10));
+		when(mongoTemplate.stream(any(Query.class), eq(Entry.class)))
+				.thenAnswer(invocation -> List.of(kept, deleted).stream());
+
+		// The second entry was deleted after it was read, so its update matches nothing
+		BulkWriteResult result = mock(BulkWriteResult.class);
+		when(result.getMatchedCount()).thenReturn(1);
+		when(bulkOperations.execute()).thenReturn(result);
+		Entry updated = entry("1", LocalDate.of(2024, 1, 10));
+		updated.setCategory("food");
+		when(mongoTemplate.find(any(Query.class), eq(Entry.class))).thenReturn(List.of(updated));
+
+		entryCategoryService.recategorizeAll("user");
+
+		ArgumentCaptor<RollupChanges> changes = ArgumentCaptor.forClass(RollupChanges.class);
+		verify(monthlyRollupService, timeout(5000)).apply(changes.capture());
+		List<MonthlyRollup> rollups = new ArrayList<>(changes.getValue().getChanges());
+		assertEquals(2, rollups.size());
+		for (MonthlyRollup rollup : rollups) {
+			assertEquals("2024-01", rollup.getMonth());
+			assertEquals(rollup.getCategory().equals("food") ? 1 : -1, rollup.getCount());
+		}
+	}
+
+	private static Entry entry(String id, LocalDate date) {
+		Entry entry = new Entry(date, new BigDecimal("-5.00"), "alko", "OP", id, "user");
+		ReflectionTestUtils.setField(entry, "id", id);
+		entry.setCategory("other");
+		return entry;
+	}
+
+}
@@ -0,0 +1,55 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+
+class EntryDeletionServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final MonthlyRollupService monthlyRollupService = mock(MonthlyRollupService.class);
+
+	private final MerchantSketchService merchantSketchService = mock(MerchantSketchService.class);
+
+	private final EntryDeletionService entryDeletionService = new EntryDeletionService();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(entryDeletionService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(entryDeletionService, "monthlyRollupService", monthlyRollupService);
+		ReflectionTestUtils.setField(entryDeletionService, "merchantSketchService", merchantSketchService);
+		ReflectionTestUtils.setField(entryDeletionService, "ledgerLocks", new LedgerLocks());
+	}
+
+	@Test
+	void secondDeleteOfSameEntryLeavesRollupsAlone() {
+		Entry entry = new Entry(LocalDate.of(2024, 1, 1), new BigDecimal("-5.00"), "alko", "OP", "1", "user");
+		entry.setCategory("food");
+		// Both requests found the entry, but only the first one removes it
+		when(mongoTemplate.findAndRemove(any(Query.class), eq(Entry.class))).thenReturn(entry, (Entry) null);
+
+		assertNotNull(entryDeletionService.delete("user", "id"));
+		assertNull(entryDeletionService.delete("user", "id"));
+
+		verify(monthlyRollupService, times(1)).removeEntry(entry);
+		verify(merchantSketchService, times(1)).invalidate("user");
+	}
+
+}
@@ -0,0 +1,134 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryListItem;
+
+class EntryExportServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final EntryExportService entryExportService = new EntryExportService();
+
+	private Query query;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(entryExportService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(entryExportService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(entryExportService, "bufferSize", 1024);
+		ReflectionTestUtils.setField(entryExportService, "cursorBatchSize", 100);
+		when(mongoTemplate.getCollectionName(Entry.class)).thenReturn("entries");
+	}
+
+	private void returnEntries(Stream<EntryListItem> entries) {
+		when(mongoTemplate.stream(any(Query.class), eq(EntryListItem.class), anyString())).thenAnswer(invocation -> {
+			query = invocation.getArgument(0);
+			return entries;
+		});
+	}
+
+	private static List<EntryListItem> sampleEntries() {
+		return List.of(
+				new EntryListItem("a1", LocalDate.of(2024, 1, 5), new BigDecimal("-12.50"), "K-Market, Kamppi", "r1", "OP",
+						"Groceries"),
+				new EntryListItem("a2", LocalDate.of(2024, 1, 6), new BigDecimal("2500.00"), "Salary \"January\"", null,
+						"S-Pankki", null));
+	}
+
+	@Test
+	void writesOneJsonObjectPerLine() throws IOException {
+		returnEntries(sampleEntries().stream());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long written = entryExportService.export("user", null, null, EntryExportService.Format.NDJSON, out);
+
+		assertEquals(2, written);
+		assertEquals("{\"id\":\"a1\",\"date\":\"2024-01-05\",\"amount\":-12.50,\"title\":\"K-Market, Kamppi\","
+				+ "\"referenceId\":\"r1\",\"bankName\":\"OP\",\"category\":\"Groceries\"}\n"
+				+ "{\"id\":\"a2\",\"date\":\"2024-01-06\",\"amount\":2500.00,\"title\":\"Salary \\\"January\\\"\","
+				+ "\"referenceId\":null,\"bankName\":\"S-Pankki\",\"category\":null}\n",
+				out.toString(StandardCharsets.UTF_8));
+		assertEquals(new Document("date", 1).append("_id", 1), query.getSortObject());
+		assertEquals(100, query.getMeta().getCursorBatchSize());
+	}
+
+	@Test
+	void quotesCsvFieldsWithSeparators() throws IOException {
+		returnEntries(sampleEntries().stream());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		entryExportService.export("user", null, null, EntryExportService.Format.CSV, out);
+
+		assertEquals("id,date,amount,title,referenceId,bankName,category\r\n"
+				+ "a1,2024-01-05,-12.50,\"K-Market, Kamppi\",r1,OP,Groceries\r\n"
+				+ "a2,2024-01-06,2500.00,\"Salary \"\"January\"\"\",,S-Pankki,\r\n",
+				out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void neutralizesCsvFieldsThatStartFormulas() throws IOException {
+		returnEntries(Stream.of(
+				new EntryListItem("a1", LocalDate.of(2024, 1, 5), new BigDecimal("-1.00"),
+						"=HYPERLINK(\"http://example.com\",\"x\")", "+cmd|' /C calc'!A0", "@SUM(A1)", "-2+3"),
+				new EntryListItem("a2", LocalDate.of(2024, 1, 6), new BigDecimal("-2.00"), "\tTab", "\rReturn", "OP",
+						"K-Market -5%")));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		entryExportService.export("user", null, null, EntryExportService.Format.CSV, out);
+
+		// Amounts are numbers and keep their sign
+		assertEquals("id,date,amount,title,referenceId,bankName,category\r\n"
+				+ "a1,2024-01-05,-1.00,\"'=HYPERLINK(\"\"http://example.com\"\",\"\"x\"\")\",\"'+cmd|' /C calc'!A0\","
+				+ "\"'@SUM(A1)\",\"'-2+3\"\r\n"
+				+ "a2,2024-01-06,-2.00,\"'\tTab\",\"'\rReturn\",OP,K-Market -5%\r\n",
+				out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void streamsLargeLedgersWithoutCollectingThem() throws IOException {
+		int rows = 500_000;
+		returnEntries(Stream.iterate(0, i -> i + 1).limit(rows).map(i -> new EntryListItem("id" + i,
+				LocalDate.of(2020, 1, 1).plusDays(i % 1500), new BigDecimal("-1.00"), "title", null, "OP", "Other")));
+		long[] bytes = { 0 };
+		OutputStream out = new OutputStream() {
+			@Override
+			public void write(int b) {
+				bytes[0]++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				bytes[0] += len;
+			}
+		};
+
+		assertEquals(rows, entryExportService.export("user", null, null, EntryExportService.Format.NDJSON, out));
+		assertEquals(true, bytes[0] > rows * 100L);
+	}
+
+}
@@ -0,0 +1,95 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryListItem;
+
+class EntryListingServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final EntryListingService entryListingService = new EntryListingService();
+
+	private final List<Query> queries = new ArrayList<>();
+
+	private final List<EntryListItem> stored = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(entryListingService, "mongoTemplate", mongoTemplate);
+		when(mongoTemplate.getCollectionName(Entry.class)).thenReturn("entries");
+		when(mongoTemplate.find(any(Query.class), eq(EntryListItem.class), anyString())).thenAnswer(invocation -> {
+			Query query = invocation.getArgument(0);
+			queries.add(query);
+			return new ArrayList<>(stored.subList(0, Math.min(stored.size(), query.getLimit())));
+		});
+
+		for (int i = 0; i < 3; i++) {
+			stored.add(new EntryListItem(new ObjectId().toHexString(), LocalDate.of(2024, 3, 3 - i),
+					new BigDecimal("-1.00"), "title " + i, "ref" + i, "OP", "groceries"));
+		}
+	}
+
+	@Test
+	void nextCursorPointsAfterTheLastEntryOfThePage() {
+		EntryPage page = entryListingService.getPage("user", null, null, 2, null, "title,amount");
+
+		assertEquals(2, page.getEntries().size());
+		assertEquals(List.of("title", "amount"), new ArrayList<>(page.getEntries().get(0).keySet()));
+		assertEquals(3, queries.get(0).getLimit());
+		assertEquals(new Document("date", -1).append("_id", -1), queries.get(0).getSortObject());
+
+		EntryListItem last = stored.get(1);
+		stored.remove(0);
+		stored.remove(0);
+		EntryPage next = entryListingService.getPage("user", null, null, 2, page.getNextCursor(), null);
+		assertEquals(1, next.getEntries().size());
+		assertNull(next.getNextCursor());
+
+		// The second query starts after the date and id of the last entry of the first page
+		List<?> criteria = (List<?>) queries.get(1).getQueryObject().get("$and");
+		Document after = (Document) ((List<?>) ((Document) criteria.get(1)).get("$or")).get(1);
+		assertEquals(last.date(), after.get("date"));
+		assertEquals(new Document("$lt", new ObjectId(last.id())), after.get("_id"));
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		EntryPage page = entryListingService.getPage("user", null, null, 3, null, null);
+		assertEquals(3, page.getEntries().size());
+		assertEquals(7, page.getEntries().get(0).size());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void invalidParametersAreRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> entryListingService.getPage("user", null, null, 0, null, null));
+		assertThrows(IllegalArgumentException.class,
+				() -> entryListingService.getPage("user", null, null, 10, "not a cursor", null));
+		assertThrows(IllegalArgumentException.class,
+				() -> entryListingService.getPage("user", null, null, 10, null, "title,userId"));
+	}
+
+}
@@ -0,0 +1,111 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryStatsView;
+import hh.sof03.mybudgetpal.domain.MerchantSketch;
+import hh.sof03.mybudgetpal.domain.MerchantSketchRepository;
+
+class MerchantSketchServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final MerchantSketchRepository merchantSketchRepository = mock(MerchantSketchRepository.class);
+
+	private final LedgerLocks ledgerLocks = new LedgerLocks();
+
+	private final MerchantSketchService merchantSketchService = new MerchantSketchService();
+
+	// The stored sketch, null until one is saved
+	private final AtomicReference<MerchantSketch> stored = new AtomicReference<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(merchantSketchService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(merchantSketchService, "merchantSketchRepository", merchantSketchRepository);
+		ReflectionTestUtils.setField(merchantSketchService, "ledgerLocks", ledgerLocks);
+		ReflectionTestUtils.setField(merchantSketchService, "sketchSize", 10);
+		ReflectionTestUtils.setField(merchantSketchService, "cursorBatchSize", 100);
+
+		when(merchantSketchRepository.findById("user")).thenAnswer(invocation -> Optional.ofNullable(stored.get()));
+		when(merchantSketchRepository.save(any(MerchantSketch.class))).thenAnswer(invocation -> {
+			stored.set(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		doAnswer(invocation -> {
+			stored.set(null);
+			return null;
+		}).when(merchantSketchRepository).deleteById("user");
+		when(mongoTemplate.getCollectionName(Entry.class)).thenReturn("entries");
+		when(mongoTemplate.stream(any(Query.class), eq(EntryStatsView.class), anyString()))
+				.thenAnswer(invocation -> List.of(
+						new EntryStatsView("1", LocalDate.of(2024, 1, 1), new BigDecimal("-5.00"), "alko", null),
+						new EntryStatsView("2", LocalDate.of(2024, 1, 2), new BigDecimal("-7.00"), "hsl", null))
+						.stream());
+	}
+
+	@Test
+	void buildWaitsForRunningImportBatch() throws InterruptedException {
+		// The import has inserted a batch and is about to add it to the sketch
+		Lock entryWriteLock = ledgerLocks.entryWriteLock("user");
+		entryWriteLock.lock();
+		Thread build = new Thread(() -> merchantSketchService.getSketch("user"));
+		build.start();
+		build.join(200);
+		assertTrue(build.isAlive());
+		verify(mongoTemplate, never()).stream(any(Query.class), eq(EntryStatsView.class), anyString());
+
+		// No sketch yet, so the batch is left to the build
+		merchantSketchService.addEntries("user", List.of(new Entry()));
+		entryWriteLock.unlock();
+		build.join(10000);
+		assertFalse(build.isAlive());
+
+		// Each entry read by the build is counted once
+		MerchantSketch sketch = stored.get();
+		assertEquals(2, sketch.getByCount().size());
+		assertEquals(1, sketch.getByCount().get(0).getCount());
+		assertEquals(1, sketch.getByCount().get(1).getCount());
+	}
+
+	@Test
+	void deletedEntryLeavesSketchAfterInvalidation() {
+		assertEquals(2, merchantSketchService.getSketch("user").getByCount().size());
+
+		// The entry titled hsl is deleted
+		when(mongoTemplate.stream(any(Query.class), eq(EntryStatsView.class), anyString()))
+				.thenAnswer(invocation -> List.of(
+						new EntryStatsView("1", LocalDate.of(2024, 1, 1), new BigDecimal("-5.00"), "alko", null))
+						.stream());
+		merchantSketchService.invalidate("user");
+
+		MerchantSketch sketch = merchantSketchService.getSketch("user");
+		assertEquals(1, sketch.getByCount().size());
+		assertEquals("alko", sketch.getByCount().get(0).getTitle());
+	}
+
+}
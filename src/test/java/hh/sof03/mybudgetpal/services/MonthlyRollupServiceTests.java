@@ -0,0 +1,140 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.Entry;
+import hh.sof03.mybudgetpal.domain.EntryStatsView;
+import hh.sof03.mybudgetpal.domain.Keyword;
+import hh.sof03.mybudgetpal.domain.KeywordType;
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+import hh.sof03.mybudgetpal.domain.MonthlyRollupRepository;
+import hh.sof03.mybudgetpal.domain.MonthlyRollupStatusRepository;
+import hh.sof03.mybudgetpal.keywords.CategoryClassifier;
+import hh.sof03.mybudgetpal.keywords.KeywordService;
+import hh.sof03.mybudgetpal.statistics.LedgerAggregator;
+
+class MonthlyRollupServiceTests {
+
+	private static final String[] TITLES = { "k-market kamppi", "alko", "palkka", "hsl", "vuokra", "netflix" };
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+
+	private final KeywordService keywordService = mock(KeywordService.class);
+
+	private final MonthlyRollupService monthlyRollupService = new MonthlyRollupService();
+
+	private final List<EntryStatsView> entries = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(monthlyRollupService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(monthlyRollupService, "keywordService", keywordService);
+		ReflectionTestUtils.setField(monthlyRollupService, "cursorBatchSize", 37);
+		ReflectionTestUtils.setField(monthlyRollupService, "parallelism", 4);
+		monthlyRollupService.init();
+
+		List<Keyword> keywords = List.of(
+				new Keyword(new ArrayList<>(List.of("k-market", "alko")), "food", KeywordType.INCLUDED, "user"),
+				new Keyword(new ArrayList<>(List.of("hsl")), "transport", KeywordType.INCLUDED, "user"));
+		when(keywordService.getCategoryClassifier("user")).thenReturn(new CategoryClassifier(keywords, 0));
+
+		// Some entries have no stored category and are categorized while totalling
+		Random random = new Random(7);
+		for (int i = 0; i < 5000; i++) {
+			String title = TITLES[random.nextInt(TITLES.length)];
+			entries.add(new EntryStatsView("id" + i,
+					LocalDate.of(2021 + random.nextInt(4), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+					BigDecimal.valueOf(random.nextInt(100000) - 70000, 2), title,
+					random.nextInt(4) == 0 ? null : "stored " + title));
+		}
+		when(mongoTemplate.getCollectionName(Entry.class)).thenReturn("entries");
+		when(mongoTemplate.stream(any(Query.class), eq(EntryStatsView.class), anyString()))
+				.thenAnswer(invocation -> entries.stream());
+	}
+
+	@AfterEach
+	void tearDown() {
+		monthlyRollupService.shutdown();
+	}
+
+	@Test
+	void parallelTotalsAreIdenticalToSequentialTotals() {
+		ReflectionTestUtils.setField(monthlyRollupService, "parallelThreshold", Long.MAX_VALUE);
+		LedgerAggregator sequential = monthlyRollupService.aggregate("user", query(), false);
+
+		for (long threshold : new long[] { 0, 1000 }) {
+			ReflectionTestUtils.setField(monthlyRollupService, "parallelThreshold", threshold);
+			LedgerAggregator parallel = monthlyRollupService.aggregate("user", query(), false);
+
+			assertArrayEquals(sequential.getCategorySums(), parallel.getCategorySums());
+			List<MonthlyRollup> expected = sequential.toRollups("user");
+			List<MonthlyRollup> actual = parallel.toRollups("user");
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getMonth(), actual.get(i).getMonth());
+				assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+				assertTrue(expected.get(i).hasSameTotals(actual.get(i)));
+			}
+		}
+	}
+
+	@Test
+	void rebuildWaitsForRunningEntryWrites() throws InterruptedException {
+		LedgerLocks ledgerLocks = new LedgerLocks();
+		MonthlyRollupRepository monthlyRollupRepository = mock(MonthlyRollupRepository.class);
+		ReflectionTestUtils.setField(monthlyRollupService, "ledgerLocks", ledgerLocks);
+		ReflectionTestUtils.setField(monthlyRollupService, "monthlyRollupRepository", monthlyRollupRepository);
+		ReflectionTestUtils.setField(monthlyRollupService, "monthlyRollupStatusRepository",
+				mock(MonthlyRollupStatusRepository.class));
+		ReflectionTestUtils.setField(monthlyRollupService, "statisticsCache", mock(StatisticsCache.class));
+		ReflectionTestUtils.setField(monthlyRollupService, "parallelThreshold", Long.MAX_VALUE);
+		when(mongoTemplate.bulkOps(any(BulkMode.class), eq(Entry.class))).thenReturn(mock(BulkOperations.class));
+
+		// An import has inserted a batch but not yet added it to the rollups
+		Lock entryWriteLock = ledgerLocks.entryWriteLock("user");
+		entryWriteLock.lock();
+		Thread rebuild = new Thread(() -> monthlyRollupService.rebuild("user"));
+		rebuild.start();
+		rebuild.join(200);
+		assertTrue(rebuild.isAlive());
+		verify(mongoTemplate, never()).stream(any(Query.class), eq(EntryStatsView.class), anyString());
+
+		entryWriteLock.unlock();
+		rebuild.join(10000);
+		assertFalse(rebuild.isAlive());
+		verify(monthlyRollupRepository).insert(anyIterable());
+	}
+
+	private static Query query() {
+		return new Query(Criteria.where("user_id").is("user"));
+	}
+
+}
@@ -0,0 +1,80 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.User;
+
+class MultiFileImportServiceTests {
+
+	private final StatementImportService statementImportService = mock(StatementImportService.class);
+
+	private final ImportLogService importLogService = mock(ImportLogService.class);
+
+	private final MultiFileImportService multiFileImportService = new MultiFileImportService();
+
+	private final User user = new User();
+
+	private final StatementSource source = new StatementSource() {
+		@Override
+		public String getFileName() {
+			return "statement.csv";
+		}
+
+		@Override
+		public InputStream openStream() {
+			return new ByteArrayInputStream("Date;Amount;Title\n".getBytes(StandardCharsets.UTF_8));
+		}
+	};
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ReflectionTestUtils.setField(multiFileImportService, "statementImportService", statementImportService);
+		ReflectionTestUtils.setField(multiFileImportService, "importLogService", importLogService);
+		ReflectionTestUtils.setField(multiFileImportService, "maxConcurrentFiles", 1);
+		ReflectionTestUtils.setField(multiFileImportService, "maxConcurrentFilesPerRequest", 1);
+		multiFileImportService.init();
+
+		ReflectionTestUtils.setField(user, "id", "user");
+		when(importLogService.isImported(anyString(), anyString())).thenReturn(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		multiFileImportService.shutdown();
+	}
+
+	@Test
+	void skipsFileAlreadyImported() throws Exception {
+		List<FileImportStatus> statuses = multiFileImportService.importFiles(List.of(source), user, false);
+
+		assertEquals(FileImportStatus.Status.ALREADY_IMPORTED, statuses.get(0).getStatus());
+		verify(statementImportService, never()).importStatement(any(InputStream.class), anyString(), any(User.class),
+				any(FileImportStatus.class));
+	}
+
+	@Test
+	void forcedImportParsesFileAlreadyImported() throws Exception {
+		multiFileImportService.importFiles(List.of(source), user, true);
+
+		verify(importLogService, never()).isImported(anyString(), anyString());
+		verify(statementImportService).importStatement(any(InputStream.class), anyString(), any(User.class),
+				any(FileImportStatus.class));
+	}
+
+}
@@ -0,0 +1,47 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+
+class RollupChangesTests {
+
+	@Test
+	void movingAnEntryBetweenCategoriesKeepsTheMonthTotal() {
+		RollupChanges changes = new RollupChanges("user");
+		changes.add(LocalDate.of(2024, 1, 5), "groceries", new BigDecimal("-12.30"));
+		changes.add(LocalDate.of(2024, 1, 20), "groceries", new BigDecimal("2000"));
+		changes.remove(LocalDate.of(2024, 1, 5), "groceries", new BigDecimal("-12.30"));
+		changes.add(LocalDate.of(2024, 1, 5), "alcohol", new BigDecimal("-12.30"));
+
+		List<MonthlyRollup> rollups = new ArrayList<>(changes.getChanges());
+		assertEquals(2, rollups.size());
+
+		MonthlyRollup groceries = rollups.get(0);
+		assertEquals("2024-01", groceries.getMonth());
+		assertEquals(200000, groceries.getSum());
+		assertEquals(1, groceries.getCount());
+		assertEquals(200000, groceries.getIncome());
+		assertEquals(0, groceries.getExpense());
+
+		MonthlyRollup alcohol = rollups.get(1);
+		assertEquals(-1230, alcohol.getSum());
+		assertEquals(1, alcohol.getCount());
+		assertEquals(-1230, alcohol.getExpense());
+	}
+
+	@Test
+	void amountsAreRoundedToWholeCents() {
+		assertEquals(-1230, RollupChanges.toCents(new BigDecimal("-12.3")));
+		assertEquals(101, RollupChanges.toCents(new BigDecimal("1.005")));
+		assertEquals(500, RollupChanges.toCents(BigDecimal.valueOf(5)));
+	}
+
+}
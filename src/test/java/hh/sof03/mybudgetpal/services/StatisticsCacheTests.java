@@ -0,0 +1,63 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class StatisticsCacheTests {
+
+	private StatisticsCache statisticsCache;
+
+	@BeforeEach
+	void setUp() {
+		statisticsCache = new StatisticsCache();
+		ReflectionTestUtils.setField(statisticsCache, "cacheMaxUsers", 100L);
+		ReflectionTestUtils.setField(statisticsCache, "cacheTtlMinutes", 10L);
+		statisticsCache.init();
+	}
+
+	@Test
+	void statisticsAreComputedAgainOnlyAfterTheDataChanges() {
+		AtomicInteger computed = new AtomicInteger();
+
+		StatisticsCache.StatisticsResult first = statisticsCache.get("user", "",
+				() -> Map.of("balance", (double) computed.incrementAndGet()));
+		StatisticsCache.StatisticsResult second = statisticsCache.get("user", "",
+				() -> Map.of("balance", (double) computed.incrementAndGet()));
+		assertEquals(1, computed.get());
+		assertEquals(first.eTag(), second.eTag());
+		assertEquals(first.eTag(), statisticsCache.getETag("user"));
+
+		statisticsCache.dataChanged("user");
+		assertNotEquals(first.eTag(), statisticsCache.getETag("user"));
+
+		StatisticsCache.StatisticsResult third = statisticsCache.get("user", "",
+				() -> Map.of("balance", (double) computed.incrementAndGet()));
+		assertEquals(2, computed.get());
+		assertEquals(2.0, third.statistics().get("balance"));
+		assertEquals(statisticsCache.getETag("user"), third.eTag());
+	}
+
+	@Test
+	void variantsAreCachedSeparately() {
+		StatisticsCache.StatisticsResult all = statisticsCache.get("user", "", () -> Map.of("balance", 1.0));
+		StatisticsCache.StatisticsResult range = statisticsCache.get("user", "2024-01-01/2024-03-31",
+				() -> Map.of("balance", 2.0));
+		assertEquals(1.0, all.statistics().get("balance"));
+		assertEquals(2.0, range.statistics().get("balance"));
+	}
+
+	@Test
+	void usersHaveSeparateVersions() {
+		String eTag = statisticsCache.getETag("other");
+		statisticsCache.dataChanged("user");
+		assertEquals(eTag, statisticsCache.getETag("other"));
+	}
+
+}
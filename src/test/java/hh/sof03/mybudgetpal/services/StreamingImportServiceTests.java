@@ -0,0 +1,112 @@
+package hh.sof03.mybudgetpal.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import hh.sof03.mybudgetpal.domain.User;
+
+class StreamingImportServiceTests {
+
+	private static final String BOUNDARY = "statement-boundary";
+
+	private final StatementImportService statementImportService = mock(StatementImportService.class);
+
+	private final StreamingImportService streamingImportService = new StreamingImportService();
+
+	@BeforeEach
+	void setUp() throws IOException {
+		ReflectionTestUtils.setField(streamingImportService, "statementImportService", statementImportService);
+		ReflectionTestUtils.setField(streamingImportService, "maxFileBytes", 1000L);
+		ReflectionTestUtils.setField(streamingImportService, "maxRequestBytes", 10_000L);
+		ReflectionTestUtils.setField(streamingImportService, "maxRowsPerRequest", 100);
+		ReflectionTestUtils.setField(streamingImportService, "maxPartHeaderBytes", 1024);
+
+		// Read the whole part like the real import does
+		when(statementImportService.importStatement(any(InputStream.class), any(), any(), any(), anyInt()))
+				.thenAnswer(invocation -> {
+					invocation.getArgument(0, InputStream.class).readAllBytes();
+					FileImportStatus status = invocation.getArgument(3);
+					status.setStatus(FileImportStatus.Status.COMPLETED);
+					return true;
+				});
+	}
+
+	@Test
+	void failsOversizedAndNonCsvPartsAndImportsTheRest() throws IOException {
+		MockHttpServletRequest request = multipartRequest(
+				part("large.csv", "text/csv", "x".repeat(2000)),
+				part("image.png", "image/png", "png"),
+				part("small.csv", "text/csv", "Kirjauspäivä;Summa\r\n"));
+
+		List<FileImportStatus> statuses = streamingImportService.importMultipart(request, new User());
+
+		assertEquals(3, statuses.size());
+		assertEquals(FileImportStatus.Status.FAILED, statuses.get(0).getStatus());
+		assertEquals(FileImportStatus.Status.FAILED, statuses.get(1).getStatus());
+		assertEquals("Only CSV files are allowed", statuses.get(1).getError());
+		assertEquals("small.csv", statuses.get(2).getFileName());
+		assertEquals(FileImportStatus.Status.COMPLETED, statuses.get(2).getStatus());
+	}
+
+	@Test
+	void rejectsRequestOverSizeLimitBeforeReading() throws IOException {
+		MockHttpServletRequest request = multipartRequest(part("huge.csv", "text/csv", "x".repeat(20_000)));
+
+		assertThrows(FileUploadSizeException.class, () -> streamingImportService.importMultipart(request, new User()));
+	}
+
+	@Test
+	void rejectsPartWithOversizedHeaders() {
+		MockHttpServletRequest request = multipartRequest(part("n".repeat(5000) + ".csv", "text/csv", "rows"));
+
+		assertThrows(FileUploadSizeException.class, () -> streamingImportService.importMultipart(request, new User()));
+	}
+
+	@Test
+	void stopsWhenUploadHasTooManyRows() throws IOException {
+		when(statementImportService.importStatement(any(InputStream.class), eq("rows.csv"), any(), any(), anyInt()))
+				.thenAnswer(invocation -> {
+					FileImportStatus status = invocation.getArgument(3);
+					status.setRowsParsed(invocation.getArgument(4));
+					// The batches written before the limit stay in the database
+					status.setInserted(40);
+					throw new ImportLimitException("File has more than " + invocation.getArgument(4) + " rows");
+				});
+		MockHttpServletRequest request = multipartRequest(part("rows.csv", "text/csv", "rows"));
+
+		ImportLimitException e = assertThrows(ImportLimitException.class,
+				() -> streamingImportService.importMultipart(request, new User()));
+		assertEquals("Upload has more than 100 rows (40 rows imported before the limit were kept)", e.getMessage());
+	}
+
+	private static String part(String fileName, String contentType, String content) {
+		return "--" + BOUNDARY + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+				+ "Content-Type: " + contentType + "\r\n\r\n"
+				+ content + "\r\n";
+	}
+
+	private static MockHttpServletRequest multipartRequest(String... parts) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/entries/import-stream");
+		request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+		request.setContent((String.join("", parts) + "--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+}
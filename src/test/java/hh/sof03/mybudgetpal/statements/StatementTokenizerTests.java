@@ -0,0 +1,66 @@
+package hh.sof03.mybudgetpal.statements;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+
+class StatementTokenizerTests {
+
+	private static final String STATEMENT = "\uFEFFKirjauspäivä;Summa;Saajan nimi;Arkistointitunnus\r\n"
+			+ "31.12.2024;-1 234,56;\"K-Market  Kamppi\";20241231/ABC123\r\n"
+			+ "\r\n"
+			+ "01.01.2025;+12,5;\"Quote \"\"and\"\"; semicolon\";\"REF;2\"\n"
+			+ "2025-01-02;7;Last line;REF3";
+
+	@Test
+	void readsQuotedFieldsAndSkipsEmptyLines() throws IOException {
+		StatementTokenizer tokenizer = new StatementTokenizer(new StringReader(STATEMENT));
+
+		assertTrue(tokenizer.nextRecord());
+		assertArrayEquals(new String[] { "Kirjauspäivä", "Summa", "Saajan nimi", "Arkistointitunnus" },
+				tokenizer.record().fields());
+
+		assertTrue(tokenizer.nextRecord());
+		assertEquals("k-market kamppi", tokenizer.record().normalizedField(2));
+
+		assertTrue(tokenizer.nextRecord());
+		assertEquals(4, tokenizer.record().fieldCount());
+		assertEquals("Quote \"and\"; semicolon", tokenizer.record().field(2));
+		assertEquals("REF;2", tokenizer.record().field(3));
+
+		assertTrue(tokenizer.nextRecord());
+		assertEquals("REF3", tokenizer.record().field(3));
+		assertFalse(tokenizer.nextRecord());
+		assertEquals(4, tokenizer.recordNumber());
+	}
+
+	@Test
+	void parsesAmountsAndDatesInPlace() throws IOException {
+		StatementTokenizer tokenizer = new StatementTokenizer(
+				ByteBuffer.wrap(STATEMENT.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+		tokenizer.nextRecord();
+
+		tokenizer.nextRecord();
+		assertEquals(-123456, tokenizer.record().minorUnits(1));
+		assertEquals(LocalDate.of(2024, 12, 31), tokenizer.record().date(0, DateOrder.DAY_MONTH_YEAR));
+
+		tokenizer.nextRecord();
+		assertEquals(1250, tokenizer.record().minorUnits(1));
+
+		tokenizer.nextRecord();
+		assertEquals(700, tokenizer.record().minorUnits(1));
+		assertEquals(LocalDate.of(2025, 1, 2), tokenizer.record().date(0, DateOrder.YEAR_MONTH_DAY));
+		assertThrows(NumberFormatException.class, () -> tokenizer.record().minorUnits(2));
+	}
+
+}
@@ -0,0 +1,76 @@
+package hh.sof03.mybudgetpal.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hh.sof03.mybudgetpal.domain.MonthlyRollup;
+
+class LedgerAggregatorTests {
+
+	private static final String[] CATEGORIES = { "groceries", "rent", "salary", "Other Expenses", "Other Income" };
+
+	@Test
+	void totalsMatchBigDecimalSums() {
+		Random random = new Random(42);
+		LedgerAggregator aggregator = new LedgerAggregator();
+		Map<String, BigDecimal> expected = new HashMap<>();
+		Map<String, Integer> expectedCounts = new HashMap<>();
+
+		for (int i = 0; i < 20000; i++) {
+			// Months are added out of order, so rows are prepended as well as appended
+			LocalDate date = LocalDate.of(2020 + random.nextInt(5), 1 + random.nextInt(12), 1 + random.nextInt(28));
+			String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+			BigDecimal amount = BigDecimal.valueOf(random.nextInt(200000) - 100000, 2);
+			aggregator.add(date, category, amount);
+
+			String key = date.getYear() + "-" + date.getMonthValue() + "/" + category;
+			expected.merge(key, amount, BigDecimal::add);
+			expectedCounts.merge(key, 1, Integer::sum);
+		}
+
+		List<MonthlyRollup> rollups = aggregator.toRollups("user");
+		assertEquals(expected.size(), rollups.size());
+		for (MonthlyRollup rollup : rollups) {
+			String[] month = rollup.getMonth().split("-");
+			String key = Integer.parseInt(month[0]) + "-" + Integer.parseInt(month[1]) + "/" + rollup.getCategory();
+			assertEquals(LedgerAggregator.toCents(expected.get(key)), rollup.getSum());
+			assertEquals((long) expectedCounts.get(key), rollup.getCount());
+			assertEquals(rollup.getSum(), rollup.getIncome() + rollup.getExpense());
+		}
+	}
+
+	@Test
+	void rollupsAreAddedToTheSameCells() {
+		LedgerAggregator aggregator = new LedgerAggregator();
+		aggregator.add(LocalDate.of(2024, 3, 2), "rent", new BigDecimal("-700.00"));
+		aggregator.add(new MonthlyRollup("user", "2024-03", "rent", -70000, 1, 0, -70000));
+		aggregator.add(new MonthlyRollup("user", "2023-12", "salary", 300000, 1, 300000, 0));
+
+		List<MonthlyRollup> rollups = aggregator.toRollups("user");
+		assertEquals(2, rollups.size());
+		assertEquals("2023-12", rollups.get(0).getMonth());
+		assertEquals("2024-03", rollups.get(1).getMonth());
+		assertEquals(-140000, rollups.get(1).getSum());
+		assertEquals(2, rollups.get(1).getCount());
+		assertEquals("rent", aggregator.getCategory(0));
+		assertEquals(-140000, aggregator.getCategorySums()[0]);
+		assertEquals(300000, aggregator.getCategorySums()[1]);
+	}
+
+	@Test
+	void amountsAreConvertedToCentsExactly() {
+		assertEquals(-1230, LedgerAggregator.toCents(new BigDecimal("-12.3")));
+		assertEquals(101, LedgerAggregator.toCents(new BigDecimal("1.005")));
+		assertEquals(150000, LedgerAggregator.toCents(new BigDecimal("1.5E+3")));
+		assertEquals(10, LedgerAggregator.toCents(new BigDecimal("0.1")));
+	}
+
+}
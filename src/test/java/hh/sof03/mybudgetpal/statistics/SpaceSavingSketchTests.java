@@ -0,0 +1,75 @@
+package hh.sof03.mybudgetpal.statistics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hh.sof03.mybudgetpal.domain.MerchantCount;
+
+class SpaceSavingSketchTests {
+
+	@Test
+	void heavyHittersAreFoundWithinTheirError() {
+		Random random = new Random(3);
+		SpaceSavingSketch sketch = new SpaceSavingSketch(20);
+		Map<String, Long> totals = new HashMap<>();
+		long total = 0;
+
+		for (int i = 0; i < 50000; i++) {
+			// A few merchants get most of the spend, the rest is a long tail
+			String key = random.nextInt(3) == 0 ? "merchant " + random.nextInt(5) : "tail " + random.nextInt(5000);
+			long weight = 1 + random.nextInt(1000);
+			sketch.add(key, weight);
+			totals.merge(key, weight, Long::sum);
+			total += weight;
+		}
+
+		List<MerchantCount> counts = sketch.toCounts();
+		assertEquals(20, counts.size());
+		for (int i = 1; i < counts.size(); i++) {
+			assertTrue(counts.get(i - 1).getCount() >= counts.get(i).getCount());
+		}
+		for (MerchantCount count : counts) {
+			long actual = totals.get(count.getTitle());
+			assertTrue(count.getCount() >= actual);
+			assertTrue(count.getCount() - count.getError() <= actual);
+		}
+
+		long threshold = total / 20;
+		List<String> top = sketch.top(5).stream().map(MerchantCount::getTitle).toList();
+		totals.forEach((key, actual) -> {
+			if (actual > threshold) {
+				assertTrue(sketch.toCounts().stream().anyMatch(count -> count.getTitle().equals(key)));
+			}
+		});
+		for (int i = 0; i < 5; i++) {
+			assertTrue(top.contains("merchant " + i));
+		}
+	}
+
+	@Test
+	void storedCountsAreRestored() {
+		SpaceSavingSketch sketch = new SpaceSavingSketch(3);
+		sketch.add("a", 5);
+		sketch.add("b", 3);
+		sketch.add("c", 1);
+
+		SpaceSavingSketch restored = new SpaceSavingSketch(3, sketch.toCounts());
+		restored.add("d", 2);
+
+		// d takes the place of c, the smallest, and starts from its count
+		Map<String, MerchantCount> counts = new HashMap<>();
+		restored.toCounts().forEach(count -> counts.put(count.getTitle(), count));
+		assertEquals(List.of("a", "b", "d"), counts.keySet().stream().sorted().toList());
+		assertEquals(5, counts.get("a").getCount());
+		assertEquals(3, counts.get("d").getCount());
+		assertEquals(1, counts.get("d").getError());
+	}
+
+}